@@ -0,0 +1,35 @@
+package com.baumblatt.capacitor.firebase.auth.benchmark;
+
+import com.baumblatt.capacitor.firebase.auth.CredentialCache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The Google and Facebook isAuthenticated check on the credential cache. The id token decode of a miss is
+ * measured by the IdTokenBenchmark.
+ */
+@State(Scope.Benchmark)
+public class CredentialCacheBenchmark {
+    private static final String PROVIDER_ID = "google.com";
+
+    private CredentialCache cache;
+
+    @Setup
+    public void setup() {
+        this.cache = new CredentialCache();
+        this.cache.put(PROVIDER_ID, "google-id-token", System.currentTimeMillis() + 60 * 60 * 1000);
+    }
+
+    @Benchmark
+    public boolean cacheHit() {
+        return this.cache.get(PROVIDER_ID) != null;
+    }
+
+    @Benchmark
+    public boolean cacheMiss() {
+        return this.cache.get("facebook.com") != null;
+    }
+}
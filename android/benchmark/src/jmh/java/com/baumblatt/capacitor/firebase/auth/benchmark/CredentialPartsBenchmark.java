@@ -0,0 +1,42 @@
+package com.baumblatt.capacitor.firebase.auth.benchmark;
+
+import com.baumblatt.capacitor.firebase.auth.handlers.CredentialParts;
+import com.google.firebase.auth.AuthCredential;
+import com.google.firebase.auth.FakeOAuthCredential;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The Twitter and Apple fillResult reflective reads, with the cached method lookup against
+ * the lookup per read done before.
+ */
+@State(Scope.Benchmark)
+public class CredentialPartsBenchmark {
+    private AuthCredential credential;
+
+    @Setup
+    public void setup() {
+        this.credential = new FakeOAuthCredential("twitter.com", "access-token", "secret", null);
+    }
+
+    @Benchmark
+    public String cachedLookup() {
+        return CredentialParts.get(this.credential, "getAccessToken") + CredentialParts.get(this.credential, "getSecret");
+    }
+
+    @Benchmark
+    public String uncachedLookup() {
+        return this.lookup("getAccessToken") + this.lookup("getSecret");
+    }
+
+    private String lookup(String methodName) {
+        try {
+            return (String) this.credential.getClass().getMethod(methodName).invoke(this.credential);
+        } catch (Exception e) {
+            return "";
+        }
+    }
+}
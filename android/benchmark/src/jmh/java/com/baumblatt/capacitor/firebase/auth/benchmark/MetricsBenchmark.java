@@ -0,0 +1,27 @@
+package com.baumblatt.capacitor.firebase.auth.benchmark;
+
+import com.baumblatt.capacitor.firebase.auth.SignInMetrics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * The overhead the sign in metrics add to each phase.
+ */
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+    private final SignInMetrics metrics = new SignInMetrics();
+
+    @Benchmark
+    public void record() {
+        this.metrics.record("google.com", SignInMetrics.Phase.BUILD, SignInMetrics.now());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended() {
+        this.metrics.record("google.com", SignInMetrics.Phase.BUILD, SignInMetrics.now());
+    }
+}
@@ -0,0 +1,43 @@
+package com.baumblatt.capacitor.firebase.auth.benchmark;
+
+import com.baumblatt.capacitor.firebase.auth.RequestCodeIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The provider lookup of the plugin handleOnActivityResult, on the request codes of the Google and Facebook
+ * handlers. The activity results of the other plugins miss.
+ */
+@State(Scope.Benchmark)
+public class RequestCodeBenchmark {
+    private static final int RC_GOOGLE_SIGN_IN = 9001;
+    private static final int RC_FACEBOOK_LOGIN = 0xface;
+    private static final int RC_OTHER_PLUGIN = 1234;
+
+    private RequestCodeIndex requestCodes;
+
+    @Setup
+    public void setup() {
+        this.requestCodes = new RequestCodeIndex();
+        this.requestCodes.put(RC_GOOGLE_SIGN_IN, "google.com");
+        this.requestCodes.put(RC_FACEBOOK_LOGIN, "facebook.com");
+    }
+
+    @Benchmark
+    public String google() {
+        return this.requestCodes.get(RC_GOOGLE_SIGN_IN);
+    }
+
+    @Benchmark
+    public String facebook() {
+        return this.requestCodes.get(RC_FACEBOOK_LOGIN);
+    }
+
+    @Benchmark
+    public String miss() {
+        return this.requestCodes.get(RC_OTHER_PLUGIN);
+    }
+}
@@ -0,0 +1,133 @@
+package com.baumblatt.capacitor.firebase.auth.benchmark;
+
+import com.baumblatt.capacitor.firebase.auth.CredentialCache;
+import com.baumblatt.capacitor.firebase.auth.PluginCallRegistry;
+import com.baumblatt.capacitor.firebase.auth.ResultBuilder;
+import com.baumblatt.capacitor.firebase.auth.ResultFields;
+import com.baumblatt.capacitor.firebase.auth.SignInMetrics;
+import com.baumblatt.capacitor.firebase.auth.handlers.ResultFiller;
+import com.baumblatt.capacitor.firebase.auth.handlers.ResultParts;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+import com.google.firebase.auth.AuthCredential;
+import com.google.firebase.auth.FakeOAuthCredential;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * The sign in resolution, as the plugin resolve runs it: taking the calls back from the registry, building the
+ * result with the {@link ResultBuilder} and the provider fillers of {@link ResultParts}, then projecting it for
+ * each call with {@link ResultFields#forCall(JSObject, PluginCall)}.
+ *
+ * Google and Facebook are measured on the credential cache hit, their SDK fallback is not.
+ */
+@State(Scope.Benchmark)
+public class ResultBuildBenchmark {
+    private static final String GOOGLE = "google.com";
+    private static final String FACEBOOK = "facebook.com";
+    private static final String TWITTER = "twitter.com";
+    private static final String APPLE = "apple.com";
+    private static final String OAUTH = "microsoft.com";
+
+    private static final ResultFiller SDK_FALLBACK = new ResultFiller() {
+        @Override
+        public void fillResult(AuthCredential credential, JSObject jsResult, ResultFields fields) {
+            throw new IllegalStateException("The token is not cached.");
+        }
+    };
+
+    private PluginCallRegistry registry;
+    private ResultBuilder builder;
+    private ResultFiller googleFiller;
+    private ResultFiller facebookFiller;
+    private AuthCredential twitterCredential;
+    private AuthCredential appleCredential;
+    private AuthCredential oauthCredential;
+
+    @Setup
+    public void setup() {
+        long expiresAt = System.currentTimeMillis() + 60 * 60 * 1000;
+
+        CredentialCache cache = new CredentialCache();
+        cache.put(GOOGLE, "google-id-token", expiresAt);
+        cache.put(FACEBOOK, "facebook-access-token", expiresAt);
+
+        this.registry = new PluginCallRegistry();
+        this.builder = new ResultBuilder(new SignInMetrics());
+        this.googleFiller = ResultParts.cachedToken(cache, GOOGLE, SDK_FALLBACK);
+        this.facebookFiller = ResultParts.cachedToken(cache, FACEBOOK, SDK_FALLBACK);
+        this.twitterCredential = new FakeOAuthCredential(TWITTER, "access-token", "secret", null);
+        this.appleCredential = new FakeOAuthCredential(APPLE, "access-token", null, "raw-nonce");
+        this.oauthCredential = new FakeOAuthCredential(OAUTH, "access-token", null, null);
+    }
+
+    @Benchmark
+    public int google() {
+        return this.resolve(GOOGLE, this.googleFiller, null, call(GOOGLE));
+    }
+
+    @Benchmark
+    public int facebook() {
+        return this.resolve(FACEBOOK, this.facebookFiller, null, call(FACEBOOK));
+    }
+
+    @Benchmark
+    public int twitter() {
+        return this.resolve(TWITTER, ResultParts.TWITTER, this.twitterCredential, call(TWITTER));
+    }
+
+    @Benchmark
+    public int apple() {
+        return this.resolve(APPLE, ResultParts.APPLE, this.appleCredential, call(APPLE));
+    }
+
+    @Benchmark
+    public int oauth() {
+        return this.resolve(OAUTH, ResultParts.OAUTH, this.oauthCredential, call(OAUTH));
+    }
+
+    @Benchmark
+    public int twitterIdTokenOnly() {
+        return this.resolve(TWITTER, ResultParts.TWITTER, this.twitterCredential, call(TWITTER, "idToken"));
+    }
+
+    @Benchmark
+    public int twitterSignedInProbe() {
+        return this.resolve(TWITTER, ResultParts.TWITTER, this.twitterCredential, call(TWITTER, ResultFields.SIGNED_IN));
+    }
+
+    private int resolve(String providerId, ResultFiller filler, AuthCredential credential, PluginCall call) {
+        this.registry.add(providerId, call);
+
+        int size = 0;
+        List<PluginCall> calls = this.registry.remove(providerId);
+        JSObject jsResult = this.builder.build(providerId, filler, credential, ResultFields.union(calls));
+
+        for (PluginCall pendingCall : calls) {
+            JSObject jsCallResult = ResultFields.forCall(jsResult, pendingCall);
+            pendingCall.success(jsCallResult);
+            size += jsCallResult.length();
+        }
+
+        return size;
+    }
+
+    private static PluginCall call(String providerId, String... fields) {
+        JSObject data = new JSObject().put("providerId", providerId);
+        if (fields.length > 0) {
+            JSArray jsFields = new JSArray();
+            for (String field : fields) {
+                jsFields.put(field);
+            }
+            data.put("fields", jsFields);
+        }
+
+        return new PluginCall("1234567", data);
+    }
+}
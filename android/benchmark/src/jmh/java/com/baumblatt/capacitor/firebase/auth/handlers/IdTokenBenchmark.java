@@ -0,0 +1,51 @@
+package com.baumblatt.capacitor.firebase.auth.handlers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.Charset;
+
+/**
+ * The Google id token expiry decode of a credential cache miss and of the token refresh, on the auth0 JWT library
+ * the plugin ships.
+ */
+@State(Scope.Benchmark)
+public class IdTokenBenchmark {
+    private String validToken;
+    private String expiredToken;
+
+    @Setup
+    public void setup() {
+        long now = System.currentTimeMillis() / 1000;
+        this.validToken = token(now + 60 * 60);
+        this.expiredToken = token(now - 60 * 60);
+    }
+
+    @Benchmark
+    public long valid() {
+        return IdTokens.getExpiresAt(this.validToken);
+    }
+
+    @Benchmark
+    public long expired() {
+        return IdTokens.getExpiresAt(this.expiredToken);
+    }
+
+    /**
+     * @return A token shaped as the Google ones, the signature is not checked by the decode.
+     */
+    private static String token(long expiresAt) {
+        String header = "{\"alg\":\"RS256\",\"kid\":\"0123456789abcdef\",\"typ\":\"JWT\"}";
+        String payload = "{\"iss\":\"https://accounts.google.com\",\"aud\":\"1234567890.apps.googleusercontent.com\","
+                + "\"sub\":\"110169484474386276334\",\"email\":\"user@example.com\",\"email_verified\":true,"
+                + "\"iat\":" + (expiresAt - 60 * 60) + ",\"exp\":" + expiresAt + "}";
+
+        return encode(header) + "." + encode(payload) + "." + encode("signature");
+    }
+
+    private static String encode(String part) {
+        return java.util.Base64.getUrlEncoder().withoutPadding().encodeToString(part.getBytes(Charset.forName("UTF-8")));
+    }
+}
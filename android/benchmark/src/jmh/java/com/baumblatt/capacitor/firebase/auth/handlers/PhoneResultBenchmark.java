@@ -0,0 +1,44 @@
+package com.baumblatt.capacitor.firebase.auth.handlers;
+
+import com.baumblatt.capacitor.firebase.auth.ResultFields;
+import com.getcapacitor.JSObject;
+import com.google.firebase.auth.AuthCredential;
+import com.google.firebase.auth.FakeOAuthCredential;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The phone part of the sign in result: the verification session lookup by credential, in a store holding the
+ * other pending verifications, and its removal. In the handlers package for the package private store.
+ */
+@State(Scope.Benchmark)
+public class PhoneResultBenchmark {
+    private static final String PHONE = "+15550000000";
+
+    private PhoneVerificationStore store;
+    private AuthCredential credential;
+
+    @Setup
+    public void setup() {
+        this.store = new PhoneVerificationStore(10, 10 * 60 * 1000);
+        for (int index = 1; index < 10; index++) {
+            this.store.getOrCreate("+1555000000" + index).credential = new FakeOAuthCredential("phone", null, null, null);
+        }
+        this.credential = new FakeOAuthCredential("phone", null, null, null);
+    }
+
+    @Benchmark
+    public int fillResult() {
+        PhoneVerificationStore.Session session = this.store.getOrCreate(PHONE);
+        session.verificationId = "verification-id";
+        session.verificationCode = "123456";
+        session.credential = this.credential;
+
+        JSObject jsResult = ResultFields.ALL.newResult("phone");
+        this.store.fillResult(this.credential, jsResult, ResultFields.ALL);
+        return jsResult.length();
+    }
+}
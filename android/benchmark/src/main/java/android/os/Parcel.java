@@ -0,0 +1,16 @@
+package android.os;
+
+/**
+ * Stand-in of the Android Parcel, holding the single string the auth0 JWT writes.
+ */
+public final class Parcel {
+    private String value;
+
+    public void writeString(String value) {
+        this.value = value;
+    }
+
+    public String readString() {
+        return this.value;
+    }
+}
@@ -0,0 +1,16 @@
+package android.os;
+
+/**
+ * Stand-in of the Android Parcelable, implemented by the auth0 JWT.
+ */
+public interface Parcelable {
+    int describeContents();
+
+    void writeToParcel(Parcel dest, int flags);
+
+    interface Creator<T> {
+        T createFromParcel(Parcel source);
+
+        T[] newArray(int size);
+    }
+}
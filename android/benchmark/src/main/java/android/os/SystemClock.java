@@ -0,0 +1,13 @@
+package android.os;
+
+/**
+ * Stand-in of the Android SystemClock, backed by the JVM monotonic clock.
+ */
+public final class SystemClock {
+    private SystemClock() {
+    }
+
+    public static long elapsedRealtime() {
+        return System.nanoTime() / 1000000;
+    }
+}
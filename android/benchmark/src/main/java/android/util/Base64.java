@@ -0,0 +1,25 @@
+package android.util;
+
+import java.nio.charset.Charset;
+
+/**
+ * Stand-in of the Android Base64 decoder the auth0 JWT decoding uses, backed by the JVM decoders.
+ */
+public final class Base64 {
+    public static final int DEFAULT = 0;
+    public static final int NO_PADDING = 1;
+    public static final int NO_WRAP = 2;
+    public static final int CRLF = 4;
+    public static final int URL_SAFE = 8;
+
+    private Base64() {
+    }
+
+    public static byte[] decode(String str, int flags) {
+        return decode(str.getBytes(Charset.forName("US-ASCII")), flags);
+    }
+
+    public static byte[] decode(byte[] input, int flags) {
+        return (flags & URL_SAFE) != 0 ? java.util.Base64.getUrlDecoder().decode(input) : java.util.Base64.getMimeDecoder().decode(input);
+    }
+}
@@ -0,0 +1,37 @@
+package android.util;
+
+import java.util.Arrays;
+
+/**
+ * Stand-in of the Android SparseArray, with the same sorted keys and binary search lookup.
+ */
+public class SparseArray<E> {
+    private int[] keys = new int[0];
+    private Object[] values = new Object[0];
+
+    @SuppressWarnings("unchecked")
+    public E get(int key) {
+        int index = Arrays.binarySearch(this.keys, key);
+        return index < 0 ? null : (E) this.values[index];
+    }
+
+    public void put(int key, E value) {
+        int index = Arrays.binarySearch(this.keys, key);
+        if (index >= 0) {
+            this.values[index] = value;
+            return;
+        }
+
+        index = ~index;
+        int[] keys = new int[this.keys.length + 1];
+        Object[] values = new Object[this.values.length + 1];
+        System.arraycopy(this.keys, 0, keys, 0, index);
+        System.arraycopy(this.values, 0, values, 0, index);
+        keys[index] = key;
+        values[index] = value;
+        System.arraycopy(this.keys, index, keys, index + 1, this.keys.length - index);
+        System.arraycopy(this.values, index, values, index + 1, this.values.length - index);
+        this.keys = keys;
+        this.values = values;
+    }
+}
@@ -0,0 +1,9 @@
+package com.getcapacitor;
+
+import org.json.JSONArray;
+
+/**
+ * Stand-in of the Capacitor JSArray.
+ */
+public class JSArray extends JSONArray {
+}
@@ -0,0 +1,60 @@
+package com.getcapacitor;
+
+/**
+ * Stand-in of the Capacitor PluginCall, holding the call data and counting its resolutions.
+ */
+public class PluginCall {
+    private final String callbackId;
+    private final JSObject data;
+    private int resolutions = 0;
+
+    public PluginCall(String callbackId, JSObject data) {
+        this.callbackId = callbackId;
+        this.data = data;
+    }
+
+    public String getCallbackId() {
+        return this.callbackId;
+    }
+
+    public JSObject getData() {
+        return this.data;
+    }
+
+    public JSArray getArray(String name) {
+        Object value = this.data.opt(name);
+        return value instanceof JSArray ? (JSArray) value : null;
+    }
+
+    public String getString(String name) {
+        return this.getString(name, null);
+    }
+
+    public String getString(String name, String defaultValue) {
+        return this.data.getString(name, defaultValue);
+    }
+
+    public void success(JSObject data) {
+        this.resolutions++;
+    }
+
+    public void success() {
+        this.resolutions++;
+    }
+
+    public void reject(String msg) {
+        this.resolutions++;
+    }
+
+    public void reject(String msg, Exception ex) {
+        this.resolutions++;
+    }
+
+    public void reject(String msg, String code) {
+        this.resolutions++;
+    }
+
+    public int getResolutions() {
+        return this.resolutions;
+    }
+}
@@ -0,0 +1,10 @@
+package com.google.firebase.auth;
+
+/**
+ * Stand-in of the Firebase AuthCredential.
+ */
+public abstract class AuthCredential {
+    public abstract String getProvider();
+
+    public abstract String getSignInMethod();
+}
@@ -0,0 +1,45 @@
+package com.google.firebase.auth;
+
+/**
+ * Fake OAuth credential exposing the same accessors the Twitter, Apple and generic OAuth credentials have,
+ * which the plugin reads through reflection.
+ */
+public class FakeOAuthCredential extends AuthCredential {
+    private final String provider;
+    private final String accessToken;
+    private final String secret;
+    private final String rawNonce;
+
+    public FakeOAuthCredential(String provider, String accessToken, String secret, String rawNonce) {
+        this.provider = provider;
+        this.accessToken = accessToken;
+        this.secret = secret;
+        this.rawNonce = rawNonce;
+    }
+
+    @Override
+    public String getProvider() {
+        return this.provider;
+    }
+
+    @Override
+    public String getSignInMethod() {
+        return this.provider;
+    }
+
+    public String getIdToken() {
+        return null;
+    }
+
+    public String getAccessToken() {
+        return this.accessToken;
+    }
+
+    public String getSecret() {
+        return this.secret;
+    }
+
+    public String getRawNonce() {
+        return this.rawNonce;
+    }
+}
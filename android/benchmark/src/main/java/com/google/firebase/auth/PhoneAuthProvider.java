@@ -0,0 +1,10 @@
+package com.google.firebase.auth;
+
+/**
+ * Stand-in of the Firebase PhoneAuthProvider, only its resending token type is used.
+ */
+public class PhoneAuthProvider {
+
+    public static class ForceResendingToken {
+    }
+}
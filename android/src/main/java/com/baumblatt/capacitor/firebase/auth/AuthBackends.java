@@ -0,0 +1,61 @@
+package com.baumblatt.capacitor.firebase.auth;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.Intent;
+
+import com.facebook.CallbackManager;
+import com.google.android.gms.auth.api.signin.GoogleSignIn;
+import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
+import com.google.android.gms.auth.api.signin.GoogleSignInClient;
+import com.google.android.gms.auth.api.signin.GoogleSignInOptions;
+import com.google.android.gms.common.GoogleApiAvailability;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.PhoneAuthProvider;
+
+/**
+ * The entry points of the Firebase, Google Play Services and Facebook SDKs used by the plugin and the handlers.
+ *
+ * This implementation calls the SDKs. Tests replace it with in-process fakes, see
+ * {@link CapacitorFirebaseAuth#setBackends(AuthBackends)}, to run the call and state handling without the
+ * identity backends.
+ */
+public class AuthBackends {
+
+    public FirebaseAuth getFirebaseAuth(FirebaseApp app) {
+        return FirebaseAuth.getInstance(app);
+    }
+
+    public PhoneAuthProvider getPhoneAuthProvider(FirebaseAuth firebaseAuth) {
+        return PhoneAuthProvider.getInstance(firebaseAuth);
+    }
+
+    public int isGooglePlayServicesAvailable(Context context) {
+        return GoogleApiAvailability.getInstance().isGooglePlayServicesAvailable(context);
+    }
+
+    public GoogleSignInClient getGoogleSignInClient(Activity activity, GoogleSignInOptions options) {
+        return GoogleSignIn.getClient(activity, options);
+    }
+
+    public GoogleSignInClient getGoogleSignInClient(Context context, GoogleSignInOptions options) {
+        return GoogleSignIn.getClient(context, options);
+    }
+
+    public GoogleSignInAccount getLastSignedInAccount(Context context) {
+        return GoogleSignIn.getLastSignedInAccount(context);
+    }
+
+    public Task<GoogleSignInAccount> getSignedInAccountFromIntent(Intent data) {
+        return GoogleSignIn.getSignedInAccountFromIntent(data);
+    }
+
+    /**
+     * Note the Facebook login button only accepts the callback manager created by the SDK factory.
+     */
+    public CallbackManager createCallbackManager() {
+        return CallbackManager.Factory.create();
+    }
+}
@@ -0,0 +1,434 @@
+package com.baumblatt.capacitor.firebase.auth;
+
+import com.getcapacitor.CapConfig;
+
+import static com.baumblatt.capacitor.firebase.auth.CapacitorFirebaseAuth.CONFIG_KEY_PREFIX;
+
+/**
+ * The plugin configuration, the <code>plugins.CapacitorFirebaseAuth</code> section of the Capacitor config.
+ *
+ * Apps enabling the <code>cfaCompileConfig</code> Gradle property get it compiled at build time, see
+ * {@link CompiledAuthConfig}, so the plugin load does not parse the config asset. Otherwise it is read from the
+ * {@link CapConfig} once, on load. The time keys end with their unit, <code>Ms</code> or <code>Seconds</code>.
+ */
+public class AuthConfig {
+    private final String[] providers;
+    private final String languageCode;
+    private final boolean nativeAuth;
+    private final boolean nativeOnly;
+    private final boolean lazyInit;
+    private final boolean warmUp;
+    private final boolean refreshTokens;
+    private final int refreshLeadTimeSeconds;
+    private final int silentSignInTimeoutMs;
+    private final int signInTimeoutSeconds;
+    private final int signOutTimeoutMs;
+    private final int metricsIntervalSeconds;
+    private final int traceCapacity;
+    private final boolean persistSession;
+    private final int persistSessionMaxAgeSeconds;
+    private final int authStateWindowMs;
+    private final String[] googlePermissions;
+    private final String[] facebookPermissions;
+    private final String googleHostedDomain;
+    private final int phoneMaxSessions;
+    private final int phoneSessionTimeoutSeconds;
+    private final int phoneNumberMaxRequests;
+    private final int phoneNumberRefillSeconds;
+    private final int phoneGlobalMaxRequests;
+    private final int phoneGlobalRefillSeconds;
+    private final int phoneMinBackoffSeconds;
+    private final int phoneMaxBackoffSeconds;
+
+    private AuthConfig(Builder builder) {
+        this.providers = builder.providers;
+        this.languageCode = builder.languageCode;
+        this.nativeAuth = builder.nativeAuth;
+        this.nativeOnly = builder.nativeOnly;
+        this.lazyInit = builder.lazyInit;
+        this.warmUp = builder.warmUp;
+        this.refreshTokens = builder.refreshTokens;
+        this.refreshLeadTimeSeconds = builder.refreshLeadTimeSeconds;
+        this.silentSignInTimeoutMs = builder.silentSignInTimeoutMs;
+        this.signInTimeoutSeconds = builder.signInTimeoutSeconds;
+        this.signOutTimeoutMs = builder.signOutTimeoutMs;
+        this.metricsIntervalSeconds = builder.metricsIntervalSeconds;
+        this.traceCapacity = builder.traceCapacity;
+        this.persistSession = builder.persistSession;
+        this.persistSessionMaxAgeSeconds = builder.persistSessionMaxAgeSeconds;
+        this.authStateWindowMs = builder.authStateWindowMs;
+        this.googlePermissions = builder.googlePermissions;
+        this.facebookPermissions = builder.facebookPermissions;
+        this.googleHostedDomain = builder.googleHostedDomain;
+        this.phoneMaxSessions = builder.phoneMaxSessions;
+        this.phoneSessionTimeoutSeconds = builder.phoneSessionTimeoutSeconds;
+        this.phoneNumberMaxRequests = builder.phoneNumberMaxRequests;
+        this.phoneNumberRefillSeconds = builder.phoneNumberRefillSeconds;
+        this.phoneGlobalMaxRequests = builder.phoneGlobalMaxRequests;
+        this.phoneGlobalRefillSeconds = builder.phoneGlobalRefillSeconds;
+        this.phoneMinBackoffSeconds = builder.phoneMinBackoffSeconds;
+        this.phoneMaxBackoffSeconds = builder.phoneMaxBackoffSeconds;
+    }
+
+    /**
+     * Reads the configuration from the Capacitor config, for the apps which do not compile it. The keys missing
+     * from the config keep the {@link Builder} defaults.
+     */
+    public static AuthConfig fromCapConfig(CapConfig config) {
+        Builder builder = new Builder();
+        return builder
+                .setProviders(config.getArray(CONFIG_KEY_PREFIX+"providers", builder.providers))
+                .setLanguageCode(config.getString(CONFIG_KEY_PREFIX+"languageCode", builder.languageCode))
+                .setNativeAuth(config.getBoolean(CONFIG_KEY_PREFIX+"nativeAuth", builder.nativeAuth))
+                .setNativeOnly(config.getBoolean(CONFIG_KEY_PREFIX+"nativeOnly", builder.nativeOnly))
+                .setLazyInit(config.getBoolean(CONFIG_KEY_PREFIX+"lazyInit", builder.lazyInit))
+                .setWarmUp(config.getBoolean(CONFIG_KEY_PREFIX+"warmUp", builder.warmUp))
+                .setRefreshTokens(config.getBoolean(CONFIG_KEY_PREFIX+"refreshTokens", builder.refreshTokens))
+                .setRefreshLeadTimeSeconds(config.getInt(CONFIG_KEY_PREFIX+"refreshLeadTimeSeconds", builder.refreshLeadTimeSeconds))
+                .setSilentSignInTimeoutMs(config.getInt(CONFIG_KEY_PREFIX+"silentSignInTimeoutMs", builder.silentSignInTimeoutMs))
+                .setSignInTimeoutSeconds(config.getInt(CONFIG_KEY_PREFIX+"signInTimeoutSeconds", builder.signInTimeoutSeconds))
+                .setSignOutTimeoutMs(config.getInt(CONFIG_KEY_PREFIX+"signOutTimeoutMs", builder.signOutTimeoutMs))
+                .setMetricsIntervalSeconds(config.getInt(CONFIG_KEY_PREFIX+"metricsIntervalSeconds", builder.metricsIntervalSeconds))
+                .setTraceCapacity(config.getInt(CONFIG_KEY_PREFIX+"traceCapacity", builder.traceCapacity))
+                .setPersistSession(config.getBoolean(CONFIG_KEY_PREFIX+"persistSession", builder.persistSession))
+                .setPersistSessionMaxAgeSeconds(config.getInt(CONFIG_KEY_PREFIX+"persistSessionMaxAgeSeconds", builder.persistSessionMaxAgeSeconds))
+                .setAuthStateWindowMs(config.getInt(CONFIG_KEY_PREFIX+"authStateWindowMs", builder.authStateWindowMs))
+                .setGooglePermissions(config.getArray(CONFIG_KEY_PREFIX+"permissions.google", builder.googlePermissions))
+                .setFacebookPermissions(config.getArray(CONFIG_KEY_PREFIX+"permissions.facebook", builder.facebookPermissions))
+                .setGoogleHostedDomain(config.getString(CONFIG_KEY_PREFIX+"properties.google.hostedDomain", builder.googleHostedDomain))
+                .setPhoneMaxSessions(config.getInt(CONFIG_KEY_PREFIX+"properties.phone.maxSessions", builder.phoneMaxSessions))
+                .setPhoneSessionTimeoutSeconds(config.getInt(CONFIG_KEY_PREFIX+"properties.phone.sessionTimeoutSeconds", builder.phoneSessionTimeoutSeconds))
+                .setPhoneNumberMaxRequests(config.getInt(CONFIG_KEY_PREFIX+"properties.phone.numberMaxRequests", builder.phoneNumberMaxRequests))
+                .setPhoneNumberRefillSeconds(config.getInt(CONFIG_KEY_PREFIX+"properties.phone.numberRefillSeconds", builder.phoneNumberRefillSeconds))
+                .setPhoneGlobalMaxRequests(config.getInt(CONFIG_KEY_PREFIX+"properties.phone.globalMaxRequests", builder.phoneGlobalMaxRequests))
+                .setPhoneGlobalRefillSeconds(config.getInt(CONFIG_KEY_PREFIX+"properties.phone.globalRefillSeconds", builder.phoneGlobalRefillSeconds))
+                .setPhoneMinBackoffSeconds(config.getInt(CONFIG_KEY_PREFIX+"properties.phone.minBackoffSeconds", builder.phoneMinBackoffSeconds))
+                .setPhoneMaxBackoffSeconds(config.getInt(CONFIG_KEY_PREFIX+"properties.phone.maxBackoffSeconds", builder.phoneMaxBackoffSeconds))
+                .build();
+    }
+
+    public String[] getProviders() {
+        return this.providers.clone();
+    }
+
+    public String getLanguageCode() {
+        return this.languageCode;
+    }
+
+    public boolean isNativeAuth() {
+        return this.nativeAuth;
+    }
+
+    public boolean isNativeOnly() {
+        return this.nativeOnly;
+    }
+
+    public boolean isLazyInit() {
+        return this.lazyInit;
+    }
+
+    public boolean isWarmUp() {
+        return this.warmUp;
+    }
+
+    public boolean isRefreshTokens() {
+        return this.refreshTokens;
+    }
+
+    /**
+     * @return The token refresh lead time, in seconds.
+     */
+    public int getRefreshLeadTimeSeconds() {
+        return this.refreshLeadTimeSeconds;
+    }
+
+    /**
+     * @return The silent sign in timeout, in milliseconds.
+     */
+    public int getSilentSignInTimeoutMs() {
+        return this.silentSignInTimeoutMs;
+    }
+
+    /**
+     * @return The sign in timeout, in seconds.
+     */
+    public int getSignInTimeoutSeconds() {
+        return this.signInTimeoutSeconds;
+    }
+
+    /**
+     * @return The sign out timeout, in milliseconds.
+     */
+    public int getSignOutTimeoutMs() {
+        return this.signOutTimeoutMs;
+    }
+
+    /**
+     * @return The metrics notification interval, in seconds, zero if disabled.
+     */
+    public int getMetricsIntervalSeconds() {
+        return this.metricsIntervalSeconds;
+    }
+
+    public int getTraceCapacity() {
+        return this.traceCapacity;
+    }
+
+    public boolean isPersistSession() {
+        return this.persistSession;
+    }
+
+    /**
+     * @return The max age of a persisted session, in seconds.
+     */
+    public int getPersistSessionMaxAgeSeconds() {
+        return this.persistSessionMaxAgeSeconds;
+    }
+
+    /**
+     * @return The auth state coalescing window, in milliseconds.
+     */
+    public int getAuthStateWindowMs() {
+        return this.authStateWindowMs;
+    }
+
+    public String[] getGooglePermissions() {
+        return this.googlePermissions.clone();
+    }
+
+    public String[] getFacebookPermissions() {
+        return this.facebookPermissions.clone();
+    }
+
+    /**
+     * @return The Google hosted domain, or null if there is none.
+     */
+    public String getGoogleHostedDomain() {
+        return this.googleHostedDomain;
+    }
+
+    public int getPhoneMaxSessions() {
+        return this.phoneMaxSessions;
+    }
+
+    /**
+     * @return The phone verification session timeout, in seconds.
+     */
+    public int getPhoneSessionTimeoutSeconds() {
+        return this.phoneSessionTimeoutSeconds;
+    }
+
+    /**
+     * @return The phone verification requests a number may burst, then one more per refill interval.
+     */
+    public int getPhoneNumberMaxRequests() {
+        return this.phoneNumberMaxRequests;
+    }
+
+    /**
+     * @return The interval a number gets one more phone verification request, in seconds.
+     */
+    public int getPhoneNumberRefillSeconds() {
+        return this.phoneNumberRefillSeconds;
+    }
+
+    /**
+     * @return The phone verification requests all the numbers may burst, then one more per refill interval.
+     */
+    public int getPhoneGlobalMaxRequests() {
+        return this.phoneGlobalMaxRequests;
+    }
+
+    /**
+     * @return The interval all the numbers get one more phone verification request, in seconds.
+     */
+    public int getPhoneGlobalRefillSeconds() {
+        return this.phoneGlobalRefillSeconds;
+    }
+
+    /**
+     * @return The first block of the phone verifications after a quota error, in seconds, doubled on each further error.
+     */
+    public int getPhoneMinBackoffSeconds() {
+        return this.phoneMinBackoffSeconds;
+    }
+
+    /**
+     * @return The longest block of the phone verifications after quota errors, in seconds.
+     */
+    public int getPhoneMaxBackoffSeconds() {
+        return this.phoneMaxBackoffSeconds;
+    }
+
+    /**
+     * Starts from the defaults of the config keys, the values not set keep them.
+     */
+    public static class Builder {
+        private String[] providers = new String[0];
+        private String languageCode = "en";
+        private boolean nativeAuth = false;
+        private boolean nativeOnly = false;
+        private boolean lazyInit = false;
+        private boolean warmUp = false;
+        private boolean refreshTokens = false;
+        private int refreshLeadTimeSeconds = 300;
+        private int silentSignInTimeoutMs = 3000;
+        private int signInTimeoutSeconds = 300;
+        private int signOutTimeoutMs = 3000;
+        private int metricsIntervalSeconds = 0;
+        private int traceCapacity = 256;
+        private boolean persistSession = false;
+        private int persistSessionMaxAgeSeconds = 3600;
+        private int authStateWindowMs = 250;
+        private String[] googlePermissions = new String[0];
+        private String[] facebookPermissions = new String[0];
+        private String googleHostedDomain = null;
+        private int phoneMaxSessions = 10;
+        private int phoneSessionTimeoutSeconds = 600;
+        private int phoneNumberMaxRequests = 3;
+        private int phoneNumberRefillSeconds = 60;
+        private int phoneGlobalMaxRequests = 10;
+        private int phoneGlobalRefillSeconds = 10;
+        private int phoneMinBackoffSeconds = 30;
+        private int phoneMaxBackoffSeconds = 3600;
+
+        public Builder setProviders(String[] providers) {
+            this.providers = providers.clone();
+            return this;
+        }
+
+        public Builder setLanguageCode(String languageCode) {
+            this.languageCode = languageCode;
+            return this;
+        }
+
+        public Builder setNativeAuth(boolean nativeAuth) {
+            this.nativeAuth = nativeAuth;
+            return this;
+        }
+
+        public Builder setNativeOnly(boolean nativeOnly) {
+            this.nativeOnly = nativeOnly;
+            return this;
+        }
+
+        public Builder setLazyInit(boolean lazyInit) {
+            this.lazyInit = lazyInit;
+            return this;
+        }
+
+        public Builder setWarmUp(boolean warmUp) {
+            this.warmUp = warmUp;
+            return this;
+        }
+
+        public Builder setRefreshTokens(boolean refreshTokens) {
+            this.refreshTokens = refreshTokens;
+            return this;
+        }
+
+        public Builder setRefreshLeadTimeSeconds(int refreshLeadTimeSeconds) {
+            this.refreshLeadTimeSeconds = refreshLeadTimeSeconds;
+            return this;
+        }
+
+        public Builder setSilentSignInTimeoutMs(int silentSignInTimeoutMs) {
+            this.silentSignInTimeoutMs = silentSignInTimeoutMs;
+            return this;
+        }
+
+        public Builder setSignInTimeoutSeconds(int signInTimeoutSeconds) {
+            this.signInTimeoutSeconds = signInTimeoutSeconds;
+            return this;
+        }
+
+        public Builder setSignOutTimeoutMs(int signOutTimeoutMs) {
+            this.signOutTimeoutMs = signOutTimeoutMs;
+            return this;
+        }
+
+        public Builder setMetricsIntervalSeconds(int metricsIntervalSeconds) {
+            this.metricsIntervalSeconds = metricsIntervalSeconds;
+            return this;
+        }
+
+        public Builder setTraceCapacity(int traceCapacity) {
+            this.traceCapacity = traceCapacity;
+            return this;
+        }
+
+        public Builder setPersistSession(boolean persistSession) {
+            this.persistSession = persistSession;
+            return this;
+        }
+
+        public Builder setPersistSessionMaxAgeSeconds(int persistSessionMaxAgeSeconds) {
+            this.persistSessionMaxAgeSeconds = persistSessionMaxAgeSeconds;
+            return this;
+        }
+
+        public Builder setAuthStateWindowMs(int authStateWindowMs) {
+            this.authStateWindowMs = authStateWindowMs;
+            return this;
+        }
+
+        public Builder setGooglePermissions(String[] googlePermissions) {
+            this.googlePermissions = googlePermissions.clone();
+            return this;
+        }
+
+        public Builder setFacebookPermissions(String[] facebookPermissions) {
+            this.facebookPermissions = facebookPermissions.clone();
+            return this;
+        }
+
+        public Builder setGoogleHostedDomain(String googleHostedDomain) {
+            this.googleHostedDomain = googleHostedDomain;
+            return this;
+        }
+
+        public Builder setPhoneMaxSessions(int phoneMaxSessions) {
+            this.phoneMaxSessions = phoneMaxSessions;
+            return this;
+        }
+
+        public Builder setPhoneSessionTimeoutSeconds(int phoneSessionTimeoutSeconds) {
+            this.phoneSessionTimeoutSeconds = phoneSessionTimeoutSeconds;
+            return this;
+        }
+
+        public Builder setPhoneNumberMaxRequests(int phoneNumberMaxRequests) {
+            this.phoneNumberMaxRequests = phoneNumberMaxRequests;
+            return this;
+        }
+
+        public Builder setPhoneNumberRefillSeconds(int phoneNumberRefillSeconds) {
+            this.phoneNumberRefillSeconds = phoneNumberRefillSeconds;
+            return this;
+        }
+
+        public Builder setPhoneGlobalMaxRequests(int phoneGlobalMaxRequests) {
+            this.phoneGlobalMaxRequests = phoneGlobalMaxRequests;
+            return this;
+        }
+
+        public Builder setPhoneGlobalRefillSeconds(int phoneGlobalRefillSeconds) {
+            this.phoneGlobalRefillSeconds = phoneGlobalRefillSeconds;
+            return this;
+        }
+
+        public Builder setPhoneMinBackoffSeconds(int phoneMinBackoffSeconds) {
+            this.phoneMinBackoffSeconds = phoneMinBackoffSeconds;
+            return this;
+        }
+
+        public Builder setPhoneMaxBackoffSeconds(int phoneMaxBackoffSeconds) {
+            this.phoneMaxBackoffSeconds = phoneMaxBackoffSeconds;
+            return this;
+        }
+
+        public AuthConfig build() {
+            return new AuthConfig(this);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.baumblatt.capacitor.firebase.auth;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.getcapacitor.JSObject;
+import com.google.android.gms.tasks.OnCompleteListener;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.auth.GetTokenResult;
+
+/**
+ * Bridges the Firebase auth state and ID token changes to the <code>cfaAuthStateChanged</code> event.
+ *
+ * The changes are coalesced, so a burst within the window (e.g. sign in followed by the token change) is
+ * emitted once, and an event is only emitted when the uid or the ID token differ from the last one.
+ * The Firebase listeners are only attached while the event has listeners.
+ */
+public class AuthStateNotifier implements FirebaseAuth.AuthStateListener, FirebaseAuth.IdTokenListener {
+    public static final String EVENT_NAME = "cfaAuthStateChanged";
+    private static final String AUTH_STATE_TAG = "AuthStateNotifier";
+
+    private final CapacitorFirebaseAuth plugin;
+    private final FirebaseAuth firebaseAuth;
+    private final long windowMillis;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private boolean attached = false;
+    private boolean scheduled = false;
+    private String lastState = null;
+
+    public AuthStateNotifier(CapacitorFirebaseAuth plugin, FirebaseAuth firebaseAuth, long windowMillis) {
+        this.plugin = plugin;
+        this.firebaseAuth = firebaseAuth;
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * Attach the Firebase listeners, which report the current state right away.
+     */
+    public synchronized void attach() {
+        if (this.attached) {
+            return;
+        }
+
+        Log.d(AUTH_STATE_TAG, "Attaching the auth state listeners.");
+        this.attached = true;
+        this.lastState = null;
+        this.firebaseAuth.addAuthStateListener(this);
+        this.firebaseAuth.addIdTokenListener(this);
+    }
+
+    public synchronized void detach() {
+        if (!this.attached) {
+            return;
+        }
+
+        Log.d(AUTH_STATE_TAG, "Detaching the auth state listeners.");
+        this.attached = false;
+        this.firebaseAuth.removeAuthStateListener(this);
+        this.firebaseAuth.removeIdTokenListener(this);
+        this.handler.removeCallbacks(this.flush);
+        this.scheduled = false;
+    }
+
+    @Override
+    public void onAuthStateChanged(@NonNull FirebaseAuth firebaseAuth) {
+        this.schedule();
+    }
+
+    @Override
+    public void onIdTokenChanged(@NonNull FirebaseAuth firebaseAuth) {
+        this.schedule();
+    }
+
+    private synchronized void schedule() {
+        if (this.attached && !this.scheduled) {
+            this.scheduled = true;
+            this.handler.postDelayed(this.flush, this.windowMillis);
+        }
+    }
+
+    private final Runnable flush = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (AuthStateNotifier.this) {
+                scheduled = false;
+                if (!attached) {
+                    return;
+                }
+            }
+
+            final FirebaseUser user = firebaseAuth.getCurrentUser();
+            if (user == null) {
+                notify(null, null);
+                return;
+            }
+
+            user.getIdToken(false).addOnCompleteListener(new OnCompleteListener<GetTokenResult>() {
+                @Override
+                public void onComplete(@NonNull Task<GetTokenResult> task) {
+                    if (task.isSuccessful() && task.getResult() != null) {
+                        notify(user, task.getResult());
+                    } else {
+                        Log.w(AUTH_STATE_TAG, "Fail to get the ID token of the current user.", task.getException());
+                        notify(user, null);
+                    }
+                }
+            });
+        }
+    };
+
+    private void notify(FirebaseUser user, GetTokenResult token) {
+        String state = user == null ? "" : user.getUid() + ":" + (token != null && token.getToken() != null ? token.getToken().hashCode() : 0);
+
+        synchronized (this) {
+            if (!this.attached || state.equals(this.lastState)) {
+                return;
+            }
+            this.lastState = state;
+        }
+
+        JSObject jsEvent = new JSObject();
+        jsEvent.put("signedIn", user != null);
+        if (user != null) {
+            jsEvent.put("uid", user.getUid());
+            if (token != null) {
+                jsEvent.put("idToken", token.getToken());
+                jsEvent.put("expirationTime", token.getExpirationTimestamp() * 1000);
+                jsEvent.put("signInProvider", token.getSignInProvider());
+            }
+        }
+
+        this.plugin.notifyListeners(EVENT_NAME, jsEvent);
+    }
+}
@@ -0,0 +1,135 @@
+package com.baumblatt.capacitor.firebase.auth;
+
+import android.os.Build;
+import android.os.Trace;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+/**
+ * Bounded ring buffer of the sign in attempt events, to pull the exact timeline of a slow sign in.
+ *
+ * The events are kept in preallocated parallel arrays, so recording one does not allocate, and the oldest
+ * events are overwritten once the buffer is full. Each event is also written as a systrace marker, and an
+ * attempt as an async section from its sign in to its resolve or reject (API 29+).
+ */
+public class AuthTraceBuffer {
+    private static final String TRACE_PREFIX = "cfa:";
+
+    public enum Event {
+        SIGN_IN("signIn"),
+        INTENT_LAUNCH("intentLaunch"),
+        ACTIVITY_RESULT("activityResult"),
+        CREDENTIAL_READY("credentialReady"),
+        NATIVE_AUTH_DONE("nativeAuthDone"),
+        RESOLVE("resolve"),
+        REJECT("reject");
+
+        private final String label;
+        private final String section;
+
+        Event(String label) {
+            this.label = label;
+            this.section = TRACE_PREFIX + label;
+        }
+    }
+
+    private final long[] timestamps;
+    private final Event[] events;
+    private final String[] providerIds;
+    private final String[] callIds;
+    private final String[] errors;
+    private int next = 0;
+    private int size = 0;
+
+    /**
+     * @param capacity The number of events kept, zero disables the buffer but not the systrace markers.
+     */
+    public AuthTraceBuffer(int capacity) {
+        this.timestamps = new long[capacity];
+        this.events = new Event[capacity];
+        this.providerIds = new String[capacity];
+        this.callIds = new String[capacity];
+        this.errors = new String[capacity];
+    }
+
+    public void record(String providerId, String callId, Event event) {
+        this.record(providerId, callId, event, null);
+    }
+
+    /**
+     * @param callId The callback id of the call, or of the first call of a joined flow.
+     * @param error The error class of a reject, null otherwise.
+     */
+    public void record(String providerId, String callId, Event event, String error) {
+        this.mark(providerId, callId, event);
+
+        if (this.timestamps.length == 0) {
+            return;
+        }
+
+        synchronized (this) {
+            this.timestamps[this.next] = System.currentTimeMillis();
+            this.events[this.next] = event;
+            this.providerIds[this.next] = providerId;
+            this.callIds[this.next] = callId;
+            this.errors[this.next] = error;
+
+            this.next = (this.next + 1) % this.timestamps.length;
+            this.size = Math.min(this.size + 1, this.timestamps.length);
+        }
+    }
+
+    private void mark(String providerId, String callId, Event event) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && callId != null
+                && (event == Event.SIGN_IN || event == Event.RESOLVE || event == Event.REJECT)) {
+            String section = TRACE_PREFIX + providerId;
+            if (event == Event.SIGN_IN) {
+                Trace.beginAsyncSection(section, callId.hashCode());
+            } else {
+                Trace.endAsyncSection(section, callId.hashCode());
+            }
+        }
+
+        // instant marker, a section with no duration
+        Trace.beginSection(event.section);
+        Trace.endSection();
+    }
+
+    /**
+     * @return The events, from the oldest to the newest.
+     */
+    public synchronized JSObject toJSObject() {
+        JSArray jsEvents = new JSArray();
+        int first = (this.next - this.size + this.timestamps.length) % Math.max(1, this.timestamps.length);
+
+        for (int index = 0; index < this.size; index++) {
+            int slot = (first + index) % this.timestamps.length;
+
+            JSObject jsEvent = new JSObject();
+            jsEvent.put("time", this.timestamps[slot]);
+            jsEvent.put("event", this.events[slot].label);
+            jsEvent.put("providerId", this.providerIds[slot]);
+            jsEvent.put("callId", this.callIds[slot]);
+            if (this.errors[slot] != null) {
+                jsEvent.put("error", this.errors[slot]);
+            }
+            jsEvents.put(jsEvent);
+        }
+
+        JSObject jsTraces = new JSObject();
+        jsTraces.put("events", jsEvents);
+        return jsTraces;
+    }
+
+    public synchronized void clear() {
+        for (int index = 0; index < this.timestamps.length; index++) {
+            this.events[index] = null;
+            this.providerIds[index] = null;
+            this.callIds[index] = null;
+            this.errors[index] = null;
+        }
+        this.next = 0;
+        this.size = 0;
+    }
+}
@@ -1,35 +1,58 @@
 package com.baumblatt.capacitor.firebase.auth;
 
+import android.app.Activity;
 import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
-import android.util.SparseArray;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 
-import com.baumblatt.capacitor.firebase.auth.R;
-import com.baumblatt.capacitor.firebase.auth.handlers.AppleProviderHandler;
 import com.baumblatt.capacitor.firebase.auth.handlers.FacebookProviderHandler;
 import com.baumblatt.capacitor.firebase.auth.handlers.GoogleProviderHandler;
-import com.baumblatt.capacitor.firebase.auth.handlers.PhoneProviderHandler;
 import com.baumblatt.capacitor.firebase.auth.handlers.ProviderHandler;
-import com.baumblatt.capacitor.firebase.auth.handlers.TwitterProviderHandler;
+import com.baumblatt.capacitor.firebase.auth.handlers.SilentSignInCallback;
 import com.getcapacitor.CapConfig;
+import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.NativePlugin;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
+import com.google.android.gms.tasks.Continuation;
 import com.google.android.gms.tasks.OnCompleteListener;
-import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.auth.AuthCredential;
 import com.google.firebase.auth.AuthResult;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.auth.GetTokenResult;
+import com.google.firebase.auth.PhoneAuthProvider;
+import com.google.firebase.auth.UserInfo;
 
-import java.util.HashMap;
+import org.json.JSONObject;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 @NativePlugin(requestCodes = {
         GoogleProviderHandler.RC_GOOGLE_SIGN_IN,
@@ -39,26 +62,174 @@ public class CapacitorFirebaseAuth extends Plugin {
     public static final String CONFIG_KEY_PREFIX = "plugins.CapacitorFirebaseAuth.";
     private static final String PLUGIN_TAG = "CapacitorFirebaseAuth";
 
+    /**
+     * A provider handler keeping the calls of its own flows, e.g. the phone verification, told when the plugin
+     * answers one of them on its deadline or a cancel sign in.
+     */
+    public interface CallOwner {
+        void release(PluginCall call);
+    }
+
     private FirebaseAuth firebaseAuth;
-    private Map<String, ProviderHandler> providerHandlers = new HashMap<>();
-    private SparseArray<ProviderHandler> providerHandlerByRC = new SparseArray<>();
+    private FirebaseAuthPool authPool;
+    private AuthBackends backends = new AuthBackends();
+    private Map<String, ProviderHandler> providerHandlers = new ConcurrentHashMap<>();
+    private RequestCodeIndex requestCodes = new RequestCodeIndex();
+    private Set<String> providerIds = new LinkedHashSet<>();
+    private PluginCallRegistry pendingCalls = new PluginCallRegistry();
+    private DeadlineWheel deadlineWheel = new DeadlineWheel(1000, 64);
+    private Map<PluginCall, DeadlineWheel.Timeout> deadlines = new ConcurrentHashMap<>();
+    private Map<String, CallOwner> callOwners = new ConcurrentHashMap<>();
+    private CredentialCache credentialCache = new CredentialCache();
+    private TokenRefreshScheduler tokenRefreshScheduler = new TokenRefreshScheduler(credentialCache);
+    private SignInMetrics metrics = new SignInMetrics();
+    private ResultBuilder resultBuilder = new ResultBuilder(this.metrics);
+    private AuthTraceBuffer traces = new AuthTraceBuffer(0);
+    private SessionSnapshotStore sessionSnapshots;
+    private AuthStateNotifier authStateNotifier;
+    private Set<String> revalidating = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    // bumped by every sign out, the flows started before it must not persist their snapshot
+    private final AtomicLong signOutGeneration = new AtomicLong();
+    private Map<String, Long> signInGenerations = new ConcurrentHashMap<>();
+    private Map<PluginCall, LinkSession> linkSessions = new ConcurrentHashMap<>();
+    private Set<Task<AuthResult>> pendingAuthResults = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<Task<AuthResult>, Boolean>()));
+    private Map<String, AuthCredential> recoveredCredentials = new ConcurrentHashMap<>();
 
     private boolean nativeAuth = false;
+    private boolean nativeOnly = false;
+    private boolean lazyInit = false;
+    private long silentSignInTimeout = 3000;
+    private long signInTimeout = 300 * 1000;
+    private long signOutTimeout = 3000;
+    private long metricsInterval = 0;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Runs the credential handling, the Firebase exchange callbacks and the result building, in order,
+     * so none of it runs on the main thread when the sign in activity closes.
+     */
+    private final ExecutorService pipeline = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, PLUGIN_TAG);
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
 
-    private CapConfig config;
+    private AuthConfig config;
+    private WeakReference<Activity> attachedActivity = new WeakReference<>(null);
 
-    public CapConfig getConfig() {
+    public AuthConfig getConfig() {
         return this.config;
     }
 
+    /**
+     * Replace the plugin configuration, before the plugin is loaded, instead of reading it from the app assets.
+     */
+    @VisibleForTesting
+    public void setConfig(CapConfig config) {
+        this.config = AuthConfig.fromCapConfig(config);
+    }
+
+    public AuthBackends getBackends() {
+        return this.backends;
+    }
+
+    /**
+     * Replace the SDK entry points, before the plugin is loaded, e.g. with in-process fakes.
+     */
+    @VisibleForTesting
+    public void setBackends(AuthBackends backends) {
+        this.backends = backends;
+    }
+
+    public CredentialCache getCredentialCache() {
+        return this.credentialCache;
+    }
+
+    public TokenRefreshScheduler getTokenRefreshScheduler() {
+        return this.tokenRefreshScheduler;
+    }
+
+    public AuthTraceBuffer getTraces() {
+        return this.traces;
+    }
+
+    public SignInMetrics getSignInMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * @return The FirebaseAuth instance of the default app.
+     */
+    public FirebaseAuth getFirebaseAuth() {
+        return this.firebaseAuth;
+    }
+
+    /**
+     * @return The FirebaseAuth instance of the app and tenant given on the call, the default one if there is none.
+     * @throws IllegalStateException If there is no Firebase app with the given name.
+     */
+    public FirebaseAuth getFirebaseAuth(PluginCall call) {
+        return this.authPool.get(call.getString("appName", null), call.getString("tenantId", null));
+    }
+
+    /**
+     * The pipeline executor, dropping the tasks submitted after the plugin was destroyed.
+     */
+    private final Executor pipelineExecutor = new Executor() {
+        @Override
+        public void execute(@NonNull Runnable task) {
+            runInPipeline(task);
+        }
+    };
+
+    /**
+     * @return The executor of the sign in pipeline, for the provider task listeners.
+     */
+    public Executor getExecutor() {
+        return this.pipelineExecutor;
+    }
+
+    private void runInPipeline(Runnable task) {
+        try {
+            this.pipeline.execute(task);
+        } catch (RejectedExecutionException e) {
+            Log.w(PLUGIN_TAG, "The plugin was destroyed, dropping the sign in result.");
+        }
+    }
+
     public void load() {
         super.load();
 
-        this.config = new CapConfig(this.bridge.getActivity().getAssets(), null);
+        if (this.config == null) {
+            this.config = CompiledAuthConfig.INSTANCE;
+        }
+        if (this.config == null) {
+            Log.d(PLUGIN_TAG, "Reading the plugin configuration from the Capacitor config");
+            this.config = AuthConfig.fromCapConfig(new CapConfig(this.bridge.getActivity().getAssets(), null));
+        }
+        this.attachedActivity = new WeakReference<Activity>(this.getActivity());
 
-        String[] providers = this.config.getArray(CONFIG_KEY_PREFIX+"providers", new String[0]);
-        this.nativeAuth = this.config.getBoolean(CONFIG_KEY_PREFIX+"nativeAuth", false);
-        String languageCode = this.config.getString(CONFIG_KEY_PREFIX+"languageCode", "en");
+        String[] providers = this.config.getProviders();
+        this.nativeOnly = this.config.isNativeOnly();
+        this.nativeAuth = this.nativeOnly || this.config.isNativeAuth();
+        String languageCode = this.config.getLanguageCode();
+        this.lazyInit = this.config.isLazyInit();
+        this.silentSignInTimeout = this.config.getSilentSignInTimeoutMs();
+        this.signInTimeout = this.config.getSignInTimeoutSeconds() * 1000L;
+        this.signOutTimeout = this.config.getSignOutTimeoutMs();
+        this.metricsInterval = this.config.getMetricsIntervalSeconds() * 1000L;
+        this.traces = new AuthTraceBuffer(this.config.getTraceCapacity());
+        this.tokenRefreshScheduler.setEnabled(this.config.isRefreshTokens());
+        this.tokenRefreshScheduler.setLeadTime(this.config.getRefreshLeadTimeSeconds() * 1000L);
+
+        if (this.config.isPersistSession()) {
+            long maxAge = this.config.getPersistSessionMaxAgeSeconds() * 1000L;
+            this.sessionSnapshots = new SessionSnapshotStore(this.getContext(), maxAge);
+        }
 
         // FirebaseApp is not initialized in this process - Error #1
         Log.d(PLUGIN_TAG, "Verifying if the default FirebaseApp was initialized.");
@@ -68,43 +239,85 @@ public class CapacitorFirebaseAuth extends Plugin {
         }
 
         Log.d(PLUGIN_TAG, "Retrieving FirebaseAuth instance");
-        this.firebaseAuth = FirebaseAuth.getInstance();
-        this.firebaseAuth.setLanguageCode(languageCode);
+        this.authPool = new FirebaseAuthPool(this.getContext(), languageCode, this.backends);
+        this.firebaseAuth = this.authPool.get(null, null);
+        this.authStateNotifier = new AuthStateNotifier(this, this.firebaseAuth, this.config.getAuthStateWindowMs());
+        this.recoverPendingAuthResult(this.firebaseAuth);
 
         for (String provider: providers) {
-            if (provider.equalsIgnoreCase(getContext().getString(R.string.google_provider_id))) {
-                Log.d(PLUGIN_TAG, "Initializing Google Provider");
-                this.providerHandlers.put(provider, new GoogleProviderHandler());
-                this.providerHandlers.get(provider).init(this);
-                Log.d(PLUGIN_TAG, "Google Provider Initialized");
-            } else if (provider.equalsIgnoreCase(getContext().getString(R.string.twitter_provider_id))) {
-                Log.d(PLUGIN_TAG, "Initializing Twitter Provider");
-                this.providerHandlers.put(provider, new TwitterProviderHandler());
-                this.providerHandlers.get(provider).init(this);
-                Log.d(PLUGIN_TAG, "Twitter Provider Initialized");
-            } else if (provider.equalsIgnoreCase(getContext().getString(R.string.facebook_provider_id))) {
-                Log.d(PLUGIN_TAG, "Initializing Facebook Provider");
-                this.providerHandlers.put(provider, new FacebookProviderHandler());
-                this.providerHandlers.get(provider).init(this);
-                Log.d(PLUGIN_TAG, "Facebook Provider Initialized");
-            } else if (provider.equalsIgnoreCase(getContext().getString(R.string.apple_provider_id))) {
-                Log.d(PLUGIN_TAG, "Initializing Apple Provider");
-                this.providerHandlers.put(provider, new AppleProviderHandler());
-                this.providerHandlers.get(provider).init(this);
-                Log.d(PLUGIN_TAG, "Facebook Apple Initialized");
-            } else if (provider.equalsIgnoreCase(getContext().getString(R.string.phone_provider_id))) {
-                Log.d(PLUGIN_TAG, "Initializing Phone Provider");
-                this.providerHandlers.put(provider, new PhoneProviderHandler());
-                this.providerHandlers.get(provider).init(this);
-                Log.d(PLUGIN_TAG, "Phone Provider Initialized");
-            }
-        }
-
-        for (ProviderHandler providerHandler : this.providerHandlers.values()) {
-            this.providerHandlerByRC.put(providerHandler.getRequestCode(), providerHandler);
+            if (!ProviderHandlerRegistry.isSupported(provider)) {
+                Log.w(PLUGIN_TAG, String.format("Provider %s not supported", provider));
+            } else if (this.lazyInit) {
+                Log.d(PLUGIN_TAG, String.format("Registering %s Provider for lazy initialization", provider));
+                this.providerIds.add(provider);
+            } else {
+                this.initProviderHandler(provider);
+            }
+        }
+
+        if (this.lazyInit && this.config.isWarmUp()) {
+            this.scheduleWarmUp();
+        }
+
+        if (this.metricsInterval > 0) {
+            this.mainHandler.postDelayed(this.metricsNotifier, this.metricsInterval);
         }
     }
 
+    /**
+     * Creates and initializes the handler of the given provider, unless it was already done.
+     * @param provider The provider id as declared in the plugin configuration.
+     * @return The initialized handler, or null if the provider is not supported.
+     */
+    private synchronized ProviderHandler initProviderHandler(String provider) {
+        ProviderHandler handler = this.providerHandlers.get(provider);
+        if (handler != null) {
+            return handler;
+        }
+
+        handler = ProviderHandlerRegistry.create(provider);
+        if (handler == null) {
+            Log.w(PLUGIN_TAG, String.format("Provider %s not supported", provider));
+            return null;
+        }
+
+        Log.d(PLUGIN_TAG, String.format("Initializing %s Provider", provider));
+        long startedAt = SignInMetrics.now();
+        handler.init(this);
+        if (this.attachedActivity.get() != null) {
+            handler.attach(this.attachedActivity.get());
+        }
+        this.metrics.record(provider, SignInMetrics.Phase.INIT, startedAt);
+        this.providerHandlers.put(provider, handler);
+        if (handler.getRequestCode() != 0) {
+            this.requestCodes.put(handler.getRequestCode(), provider);
+        }
+        Log.d(PLUGIN_TAG, String.format("%s Provider Initialized", provider));
+
+        return handler;
+    }
+
+    /**
+     * Warm up the lazy registered providers once the first frame is drawn, using the plugin thread
+     * so the main thread is not blocked and the initialization is serialized with plugin calls.
+     */
+    private void scheduleWarmUp() {
+        this.getActivity().getWindow().getDecorView().post(new Runnable() {
+            @Override
+            public void run() {
+                bridge.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        Log.d(PLUGIN_TAG, "Warming up the providers.");
+                        for (String provider : providerIds) {
+                            initProviderHandler(provider);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
     @PluginMethod()
     public void signIn(PluginCall call) {
         if (!call.getData().has("providerId")) {
@@ -117,33 +330,733 @@ public class CapacitorFirebaseAuth extends Plugin {
         if (handler == null) {
             Log.w(PLUGIN_TAG, "Provider not supported");
             call.reject("The provider is disable or unsupported");
+        } else if (!this.hasFirebaseApp(call)) {
+            call.reject(String.format("The Firebase app %s is not initialized", call.getString("appName")));
         } else {
+            this.traces.record(call.getString("providerId"), call.getCallbackId(), AuthTraceBuffer.Event.SIGN_IN);
 
-            if (handler.isAuthenticated()) {
-                JSObject jsResult = this.build(null, call);
-                call.success(jsResult);
-            } else {
-                this.saveCall(call);
+            if (call.getData().has("data")) {
+                // calls with provider data (e.g. phone verification) are distinct requests, answered by the handler
+                // once it takes them back, unless their deadline or a cancel sign in answers them first
+                String providerId = call.getString("providerId");
+                this.pendingCalls.add(providerId, call);
+                this.scheduleDeadline(providerId, call);
                 handler.signIn(call);
+            } else if (ResultFields.of(call).isSignedInProbe()) {
+                this.answerSignedInProbe(call.getString("providerId"), handler, call);
+            } else if (this.getFirebaseAuth(call) == this.firebaseAuth && this.answerFromSnapshot(call.getString("providerId"), handler, call)) {
+                Log.d(PLUGIN_TAG, "Sign in answered from the session snapshot.");
+            } else {
+                String providerId = call.getString("providerId");
+                boolean started = this.pendingCalls.add(providerId, call);
+                this.scheduleDeadline(providerId, call);
+
+                if (started) {
+                    this.signInGenerations.put(providerId, this.signOutGeneration.get());
+                    this.metrics.begin(providerId, SignInMetrics.Phase.TOTAL);
+                    this.silentSignIn(providerId, handler, call);
+                } else {
+                    Log.d(PLUGIN_TAG, "Sign in already in flight for the provider, joining it.");
+                }
+            }
+
+        }
+    }
+
+    private boolean hasFirebaseApp(PluginCall call) {
+        try {
+            this.getFirebaseAuth(call);
+            return true;
+        } catch (IllegalStateException e) {
+            Log.w(PLUGIN_TAG, "Firebase app not initialized.", e);
+            return false;
+        }
+    }
+
+    /**
+     * Reject the call with the TIMEOUT code if it is still pending once the sign in timeout elapses.
+     */
+    private void scheduleDeadline(final String providerId, final PluginCall call) {
+        if (this.signInTimeout <= 0) {
+            return;
+        }
+
+        this.deadlines.put(call, this.deadlineWheel.schedule(this.signInTimeout, new Runnable() {
+            @Override
+            public void run() {
+                deadlines.remove(call);
+                if (pendingCalls.remove(providerId, call)) {
+                    Log.w(PLUGIN_TAG, String.format("The %s sign in timed out.", providerId));
+                    releaseOwnedCall(providerId, call);
+                    if (!continueLink(call, providerId, null, "Sign in timed out.")) {
+                        traces.record(providerId, call.getCallbackId(), AuthTraceBuffer.Event.REJECT, "TIMEOUT");
+                        call.reject("Sign in timed out.", "TIMEOUT");
+                    }
+
+                    if (!pendingCalls.isPending(providerId)) {
+                        metrics.complete(providerId, SignInMetrics.Outcome.TIMEOUT);
+                    }
+                }
+            }
+        }));
+    }
+
+    /**
+     * Remove every call in flight for the provider, canceling their deadlines. The provider callbacks
+     * arriving after the calls were taken find no call and are dropped.
+     */
+    private List<PluginCall> takePendingCalls(String providerId) {
+        List<PluginCall> calls = this.pendingCalls.remove(providerId);
+        for (PluginCall call : calls) {
+            DeadlineWheel.Timeout timeout = this.deadlines.remove(call);
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+
+        return calls;
+    }
+
+    /**
+     * Take a call answered by its handler, e.g. a phone verification, out of the calls in flight and cancel its
+     * deadline. The handler must take the call before answering it.
+     * @return false if the call was already answered on its deadline or by a cancel sign in, the handler drops it.
+     */
+    public boolean takeCall(PluginCall call) {
+        if (!this.pendingCalls.remove(call.getString("providerId"), call)) {
+            return false;
+        }
+
+        DeadlineWheel.Timeout timeout = this.deadlines.remove(call);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        return true;
+    }
+
+    public void registerCallOwner(String providerId, CallOwner owner) {
+        this.callOwners.put(providerId, owner);
+    }
+
+    private void releaseOwnedCall(String providerId, PluginCall call) {
+        CallOwner owner = this.callOwners.get(providerId);
+        if (owner != null) {
+            owner.release(call);
+        }
+    }
+
+    /**
+     * Abort the sign in in flight for the given provider, or for every provider when there is no provider id,
+     * rejecting its calls with the CANCELED code.
+     */
+    @PluginMethod()
+    public void cancelSignIn(PluginCall call) {
+        String providerId = call.getString("providerId", null);
+        Set<String> providers = providerId != null ? Collections.singleton(providerId) : this.pendingCalls.keys();
+
+        for (String provider : providers) {
+            List<PluginCall> calls = this.takePendingCalls(provider);
+            for (PluginCall pendingCall : calls) {
+                this.linkSessions.remove(pendingCall);
+                this.releaseOwnedCall(provider, pendingCall);
+                this.traces.record(provider, pendingCall.getCallbackId(), AuthTraceBuffer.Event.REJECT, "CANCELED");
+                pendingCall.reject("Sign in canceled.", "CANCELED");
             }
 
+            if (!calls.isEmpty()) {
+                Log.d(PLUGIN_TAG, String.format("The %s sign in was canceled.", provider));
+                this.metrics.complete(provider, SignInMetrics.Outcome.CANCEL);
+            }
         }
+
+        call.success();
+    }
+
+    /**
+     * Resolve a status probe from the provider session, the credential cache or the session snapshot, without
+     * starting any sign in, so a signed out user gets <code>signedIn</code> false instead of a sign in UI.
+     */
+    private void answerSignedInProbe(String providerId, ProviderHandler handler, PluginCall call) {
+        boolean signedIn = this.credentialCache.get(providerId) != null
+                || (this.sessionSnapshots != null && this.sessionSnapshots.get(providerId) != null)
+                || handler.isAuthenticated();
+
+        call.success(new JSObject().put(ResultFields.SIGNED_IN, signedIn));
+        this.traces.record(providerId, call.getCallbackId(), AuthTraceBuffer.Event.RESOLVE);
+    }
+
+    /**
+     * Resolve the call with the persisted session snapshot of the provider, if there is a fresh one,
+     * and revalidate it with the provider silent sign in in background.
+     * @return true if the call was resolved.
+     */
+    private boolean answerFromSnapshot(final String providerId, ProviderHandler handler, PluginCall call) {
+        if (this.sessionSnapshots == null) {
+            return false;
+        }
+
+        JSObject jsSnapshot = this.sessionSnapshots.get(providerId);
+        if (jsSnapshot == null) {
+            return false;
+        }
+
+        call.success(ResultFields.forCall(jsSnapshot, call));
+        this.traces.record(providerId, call.getCallbackId(), AuthTraceBuffer.Event.RESOLVE);
+
+        if (this.revalidating.add(providerId)) {
+            final long generation = this.signOutGeneration.get();
+            handler.silentSignIn(call, new SilentSignInCallback() {
+                @Override
+                public void onSuccess(final AuthCredential credential) {
+                    revalidating.remove(providerId);
+                    // in native only mode the snapshot keeps the Firebase user until it expires
+                    if (credential != null && !nativeOnly) {
+                        runInPipeline(new Runnable() {
+                            @Override
+                            public void run() {
+                                persistSnapshot(providerId, build(providerId, credential, ResultFields.ALL), generation);
+                            }
+                        });
+                    }
+                }
+
+                @Override
+                public void onFailure() {
+                    revalidating.remove(providerId);
+                    Log.d(PLUGIN_TAG, String.format("The %s session is no longer valid, dropping its snapshot.", providerId));
+                    sessionSnapshots.remove(providerId);
+                }
+            });
+        }
+
+        return true;
+    }
+
+    /**
+     * @param generation The sign out generation when the flow producing the result started, the snapshot is not
+     *                   saved if a sign out happened since.
+     */
+    private void persistSnapshot(String providerId, JSObject jsResult, long generation) {
+        if (this.sessionSnapshots == null) {
+            return;
+        }
+
+        synchronized (this.sessionSnapshots) {
+            if (generation != this.signOutGeneration.get()) {
+                Log.d(PLUGIN_TAG, String.format("Signed out during the %s sign in, not saving its snapshot.", providerId));
+                return;
+            }
+
+            CredentialCache.Entry entry = this.credentialCache.get(providerId);
+            long expiresAt = entry != null ? entry.getExpiresAt() : 0;
+
+            JSONObject jsUser = jsResult.optJSONObject("user");
+            if (jsUser != null && jsUser.optLong("expirationTime") > 0) {
+                long userExpiresAt = jsUser.optLong("expirationTime");
+                expiresAt = expiresAt > 0 ? Math.min(expiresAt, userExpiresAt) : userExpiresAt;
+            }
+
+            this.sessionSnapshots.save(providerId, jsResult, expiresAt);
+        }
+    }
+
+    /**
+     * Try the provider silent sign in first, falling back to the interactive flow when it fails
+     * or does not complete before the configured deadline.
+     */
+    private void silentSignIn(final String providerId, final ProviderHandler handler, final PluginCall call) {
+        final AtomicBoolean completed = new AtomicBoolean(false);
+
+        final Runnable fallback = new Runnable() {
+            @Override
+            public void run() {
+                if (completed.compareAndSet(false, true)) {
+                    if (!pendingCalls.isPending(providerId)) {
+                        Log.d(PLUGIN_TAG, "Sign in no longer pending, skipping the interactive sign in.");
+                        return;
+                    }
+
+                    Log.d(PLUGIN_TAG, "Silent sign in unavailable, starting the interactive sign in.");
+                    metrics.begin(providerId, SignInMetrics.Phase.INTERACTIVE);
+                    handler.signIn(call);
+                }
+            }
+        };
+        this.mainHandler.postDelayed(fallback, this.silentSignInTimeout);
+
+        handler.silentSignIn(call, new SilentSignInCallback() {
+            @Override
+            public void onSuccess(AuthCredential credential) {
+                if (!completed.compareAndSet(false, true)) {
+                    Log.d(PLUGIN_TAG, "Silent sign in completed after the deadline, ignoring it.");
+                    return;
+                }
+                mainHandler.removeCallbacks(fallback);
+
+                if (credential != null) {
+                    handleAuthCredentials(providerId, credential);
+                } else {
+                    final List<PluginCall> calls = takePendingCalls(providerId);
+                    if (!calls.isEmpty()) {
+                        runInPipeline(new Runnable() {
+                            @Override
+                            public void run() {
+                                resolve(providerId, calls, build(providerId, null, ResultFields.union(calls)));
+                            }
+                        });
+                    }
+                }
+            }
+
+            @Override
+            public void onFailure() {
+                // the interactive flow starts on the main thread, as on the deadline
+                mainHandler.removeCallbacks(fallback);
+                mainHandler.post(fallback);
+            }
+        });
+    }
+
+    /**
+     * Pick up the result of a Firebase managed sign in (Twitter, Apple and the generic OAuth providers) which
+     * completed while the app was in background, or its process was gone. The result resolves the sign in of its
+     * provider in flight, or is kept for the next one, so there is no second browser round trip.
+     * @return The pending result, or null if there is none.
+     */
+    public Task<AuthResult> recoverPendingAuthResult(FirebaseAuth auth) {
+        Task<AuthResult> task = auth.getPendingAuthResult();
+        if (task == null || !this.pendingAuthResults.add(task)) {
+            return task;
+        }
+
+        task.addOnCompleteListener(this.pipelineExecutor, new OnCompleteListener<AuthResult>() {
+            @Override
+            public void onComplete(@NonNull Task<AuthResult> task) {
+                AuthCredential credential = task.isSuccessful() ? task.getResult().getCredential() : null;
+                if (credential == null) {
+                    Log.w(PLUGIN_TAG, "The pending sign in result failed.", task.getException());
+                    return;
+                }
+
+                String providerId = credential.getProvider();
+                if (pendingCalls.isPending(providerId)) {
+                    Log.d(PLUGIN_TAG, String.format("Resolving the %s sign in with the pending result.", providerId));
+                    handleAuthCredentials(providerId, credential);
+                } else {
+                    Log.d(PLUGIN_TAG, String.format("Keeping the pending %s result for the next sign in.", providerId));
+                    recoveredCredentials.put(providerId, credential);
+                }
+            }
+        });
+
+        return task;
+    }
+
+    /**
+     * @return The credential of a recovered sign in result of the provider, once, or null if there is none.
+     */
+    public AuthCredential takeRecoveredCredential(String providerId) {
+        return this.recoveredCredentials.remove(providerId);
     }
 
     @PluginMethod()
     public void signOut(PluginCall call) {
-        // sing out from providers
-        for (ProviderHandler providerHandler : this.providerHandlers.values()) {
-            providerHandler.signOut();
+        if (call.getData().has("appName") || call.getData().has("tenantId")) {
+            // the provider sessions are shared by every app and tenant, only the Firebase user is signed out
+            if (!this.hasFirebaseApp(call)) {
+                call.reject(String.format("The Firebase app %s is not initialized", call.getString("appName")));
+                return;
+            }
+
+            SignOutResult result = new SignOutResult(call);
+            this.signOutFirebase(result, Collections.singletonList(this.getFirebaseAuth(call)));
+            result.complete();
+            return;
         }
 
-        // sign out from firebase
-        FirebaseUser currentUser = this.firebaseAuth.getCurrentUser();
-        if (currentUser != null) {
-            this.firebaseAuth.signOut();
+        // sing out from providers, including the lazy ones which may hold a previous session
+        for (String provider : this.providerIds) {
+            this.initProviderHandler(provider);
         }
 
-        call.success();
+        // every provider signs out at once, the call resolves when all of them completed or timed out
+        final SignOutResult result = new SignOutResult(call);
+        List<Task<Void>> tasks = new ArrayList<>();
+        for (Map.Entry<String, ProviderHandler> entry : this.providerHandlers.entrySet()) {
+            tasks.add(this.signOutProvider(result, entry.getKey(), entry.getValue()));
+        }
+
+        this.tokenRefreshScheduler.cancelAll();
+        this.credentialCache.clear();
+        this.recoveredCredentials.clear();
+        if (this.sessionSnapshots != null) {
+            synchronized (this.sessionSnapshots) {
+                this.signOutGeneration.incrementAndGet();
+                this.sessionSnapshots.clear();
+            }
+        }
+
+        // sign out from firebase, on every app and tenant used so far
+        this.signOutFirebase(result, this.authPool.getAll());
+
+        final Runnable timeout = new Runnable() {
+            @Override
+            public void run() {
+                Log.w(PLUGIN_TAG, "Sign out timed out, resolving with the providers completed so far.");
+                result.complete();
+            }
+        };
+        this.mainHandler.postDelayed(timeout, this.signOutTimeout);
+
+        Tasks.whenAllComplete(tasks).addOnCompleteListener(this.pipelineExecutor, new OnCompleteListener<List<Task<?>>>() {
+            @Override
+            public void onComplete(@NonNull Task<List<Task<?>>> task) {
+                mainHandler.removeCallbacks(timeout);
+                result.complete();
+            }
+        });
+    }
+
+    private Task<Void> signOutProvider(final SignOutResult result, final String providerId, ProviderHandler handler) {
+        final long startedAt = SignInMetrics.now();
+        result.expect(providerId);
+
+        Task<Void> task;
+        try {
+            task = handler.signOut();
+        } catch (Exception e) {
+            task = Tasks.forException(e);
+        }
+
+        // the status is recorded before the sign out is seen as complete
+        return task.continueWith(this.pipelineExecutor, new Continuation<Void, Void>() {
+            @Override
+            public Void then(@NonNull Task<Void> task) {
+                result.put(providerId, task.getException(), startedAt);
+                return null;
+            }
+        });
+    }
+
+    private void signOutFirebase(SignOutResult result, List<FirebaseAuth> instances) {
+        long startedAt = SignInMetrics.now();
+        Exception failure = null;
+
+        for (FirebaseAuth auth : instances) {
+            try {
+                if (auth.getCurrentUser() != null) {
+                    auth.signOut();
+                }
+            } catch (Exception e) {
+                Log.w(PLUGIN_TAG, "Firebase sign out failure.", e);
+                failure = e;
+            }
+        }
+
+        result.put(SignOutResult.FIREBASE, failure, startedAt);
+    }
+
+    /**
+     * Link the identities of the given providers to the current user: the provider flows run back to back,
+     * then the collected credentials are linked in one go, and the call resolves with each provider outcome.
+     */
+    @PluginMethod()
+    public void link(PluginCall call) {
+        JSArray jsProviderIds = call.getArray("providerIds");
+        List<String> providerIds;
+        try {
+            providerIds = jsProviderIds != null ? jsProviderIds.<String>toList() : Collections.<String>emptyList();
+        } catch (Exception e) {
+            call.reject("The provider ids must be a list of strings", e);
+            return;
+        }
+
+        if (providerIds.isEmpty()) {
+            call.reject("The provider ids are required");
+            return;
+        } else if (!this.hasFirebaseApp(call)) {
+            call.reject(String.format("The Firebase app %s is not initialized", call.getString("appName")));
+            return;
+        }
+
+        FirebaseAuth auth = this.getFirebaseAuth(call);
+        if (auth.getCurrentUser() == null) {
+            call.reject("There is no signed in user to link the providers to");
+            return;
+        }
+
+        LinkSession session = new LinkSession(call, auth, providerIds);
+        this.linkSessions.put(call, session);
+        this.nextLink(session);
+    }
+
+    /**
+     * Run the flow of the next provider of the link session, or link the collected credentials once every flow ran.
+     */
+    private void nextLink(final LinkSession session) {
+        final String providerId = session.next();
+        if (providerId == null) {
+            this.runInPipeline(new Runnable() {
+                @Override
+                public void run() {
+                    applyLinks(session, session.getCredentials().entrySet().iterator());
+                }
+            });
+            return;
+        }
+
+        FirebaseUser user = session.getFirebaseAuth().getCurrentUser();
+        if (user != null && isLinked(user, providerId)) {
+            // no flow needed, which saves its round trip
+            session.linked(providerId, true);
+            this.nextLink(session);
+            return;
+        }
+
+        final ProviderHandler handler = this.providerHandlers.containsKey(providerId) || this.providerIds.contains(providerId)
+                ? this.initProviderHandler(providerId) : null;
+        if (handler == null || PhoneAuthProvider.PROVIDER_ID.equals(providerId)) {
+            session.fail(providerId, "The provider is disable or unsupported for linking");
+            this.nextLink(session);
+            return;
+        }
+
+        handler.silentSignIn(session.getCall(), new SilentSignInCallback() {
+            @Override
+            public void onSuccess(AuthCredential credential) {
+                if (credential != null) {
+                    session.collect(providerId, credential);
+                    nextLink(session);
+                } else {
+                    // the provider session is valid, but the link needs a fresh credential
+                    onFailure();
+                }
+            }
+
+            @Override
+            public void onFailure() {
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        boolean started = pendingCalls.add(providerId, session.getCall());
+                        scheduleDeadline(providerId, session.getCall());
+                        if (started) {
+                            handler.signIn(session.getCall());
+                        } else {
+                            Log.d(PLUGIN_TAG, "Sign in already in flight for the provider, the link joins it.");
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Hand the outcome of a provider flow to the link calls among the given calls.
+     * @param credential The provider credentials, or null if the flow failed.
+     * @param failure The failure message, when the flow failed.
+     * @return The calls which are not link calls.
+     */
+    private List<PluginCall> continueLinks(String providerId, List<PluginCall> calls, AuthCredential credential, String failure) {
+        List<PluginCall> signInCalls = new ArrayList<>(calls.size());
+        for (PluginCall call : calls) {
+            if (!this.continueLink(call, providerId, credential, failure)) {
+                signInCalls.add(call);
+            }
+        }
+
+        return signInCalls;
+    }
+
+    /**
+     * @return true if the call is a link call, which continues with its next provider.
+     */
+    private boolean continueLink(PluginCall call, String providerId, AuthCredential credential, String failure) {
+        LinkSession session = this.linkSessions.get(call);
+        if (session == null) {
+            return false;
+        }
+
+        if (credential != null) {
+            session.collect(providerId, credential);
+        } else {
+            session.fail(providerId, failure != null ? failure : "Sign In failure: credentials.");
+        }
+
+        this.nextLink(session);
+        return true;
+    }
+
+    /**
+     * Link the collected credentials to the current user one after the other, as each link updates the user.
+     */
+    private void applyLinks(final LinkSession session, final Iterator<Map.Entry<String, AuthCredential>> credentials) {
+        final FirebaseUser user = session.getFirebaseAuth().getCurrentUser();
+
+        if (!credentials.hasNext() || user == null) {
+            while (credentials.hasNext()) {
+                session.fail(credentials.next().getKey(), "The user signed out while linking");
+            }
+
+            this.linkSessions.remove(session.getCall());
+            JSObject jsResult = new JSObject();
+            jsResult.put("callbackId", session.getCall().getCallbackId());
+            jsResult.put("uid", user != null ? user.getUid() : null);
+            jsResult.put("providers", session.getOutcomes());
+            session.getCall().success(jsResult);
+            return;
+        }
+
+        Map.Entry<String, AuthCredential> entry = credentials.next();
+        final String providerId = entry.getKey();
+        if (isLinked(user, providerId)) {
+            // e.g. the Firebase managed OAuth flows link while they run
+            session.linked(providerId, false);
+            this.applyLinks(session, credentials);
+            return;
+        }
+
+        user.linkWithCredential(entry.getValue()).addOnCompleteListener(this.pipelineExecutor, new OnCompleteListener<AuthResult>() {
+            @Override
+            public void onComplete(@NonNull Task<AuthResult> task) {
+                if (task.isSuccessful()) {
+                    Log.d(PLUGIN_TAG, String.format("The %s identity was linked.", providerId));
+                    session.linked(providerId, false);
+                } else {
+                    Log.w(PLUGIN_TAG, String.format("Fail to link the %s identity.", providerId), task.getException());
+                    session.fail(providerId, task.getException() != null ? task.getException().getMessage() : "Link failure.");
+                }
+
+                applyLinks(session, credentials);
+            }
+        });
+    }
+
+    private static boolean isLinked(FirebaseUser user, String providerId) {
+        for (UserInfo info : user.getProviderData()) {
+            if (providerId.equals(info.getProviderId())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * The trace events of the last sign in attempts, from the oldest to the newest.
+     */
+    @PluginMethod()
+    public void dumpTraces(PluginCall call) {
+        JSObject jsTraces = this.traces.toJSObject();
+
+        if (call.getBoolean("clear", false)) {
+            this.traces.clear();
+        }
+
+        call.success(jsTraces);
+    }
+
+    /**
+     * Snapshot of the sign in latency histograms and outcome counters per provider.
+     */
+    @PluginMethod()
+    public void getMetrics(PluginCall call) {
+        JSObject jsMetrics = this.metrics.toJSObject();
+
+        if (call.getBoolean("reset", false)) {
+            this.metrics.reset();
+        }
+
+        call.success(jsMetrics);
+    }
+
+    private final Runnable metricsNotifier = new Runnable() {
+        @Override
+        public void run() {
+            if (hasListeners("cfaMetrics")) {
+                notifyListeners("cfaMetrics", metrics.toJSObject());
+            }
+            mainHandler.postDelayed(this, metricsInterval);
+        }
+    };
+
+    @Override
+    @PluginMethod(returnType = PluginMethod.RETURN_NONE)
+    public void addListener(PluginCall call) {
+        super.addListener(call);
+        if (AuthStateNotifier.EVENT_NAME.equals(call.getString("eventName"))) {
+            this.authStateNotifier.attach();
+        }
+    }
+
+    @Override
+    @PluginMethod(returnType = PluginMethod.RETURN_NONE)
+    public void removeListener(PluginCall call) {
+        super.removeListener(call);
+        if (!this.hasListeners(AuthStateNotifier.EVENT_NAME)) {
+            this.authStateNotifier.detach();
+        }
+    }
+
+    @Override
+    @PluginMethod(returnType = PluginMethod.RETURN_NONE)
+    public void removeAllListeners(PluginCall call) {
+        super.removeAllListeners(call);
+        this.authStateNotifier.detach();
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        super.handleOnDestroy();
+
+        // release everything holding the plugin, and so the activity, beyond its lifetime
+        this.detachProviderHandlers();
+        this.authStateNotifier.detach();
+        this.tokenRefreshScheduler.shutdown();
+        this.mainHandler.removeCallbacksAndMessages(null);
+        this.deadlineWheel.shutdown();
+        this.deadlines.clear();
+        this.pipeline.shutdown();
+    }
+
+    /**
+     * Rebind the provider handlers when the activity was recreated, otherwise there is nothing to do.
+     */
+    private synchronized void attachProviderHandlers() {
+        Activity activity = this.getActivity();
+        if (activity == null || activity == this.attachedActivity.get()) {
+            return;
+        }
+
+        Log.d(PLUGIN_TAG, "Attaching the provider handlers to the activity.");
+        this.attachedActivity = new WeakReference<>(activity);
+        for (ProviderHandler handler : this.providerHandlers.values()) {
+            handler.attach(activity);
+        }
+    }
+
+    private synchronized void detachProviderHandlers() {
+        Log.d(PLUGIN_TAG, "Detaching the provider handlers from the activity.");
+        this.attachedActivity = new WeakReference<>(null);
+        for (ProviderHandler handler : this.providerHandlers.values()) {
+            handler.detach();
+        }
+    }
+
+    @Override
+    protected void handleOnResume() {
+        super.handleOnResume();
+        this.attachProviderHandlers();
+        this.tokenRefreshScheduler.resume();
+        for (FirebaseAuth auth : this.authPool.getAll()) {
+            this.recoverPendingAuthResult(auth);
+        }
+    }
+
+    @Override
+    protected void handleOnPause() {
+        super.handleOnPause();
+        this.tokenRefreshScheduler.pause();
     }
 
     @Override
@@ -158,54 +1071,118 @@ public class CapacitorFirebaseAuth extends Plugin {
 
     private ProviderHandler getProviderHandler(PluginCall call) {
         String providerId = call.getString("providerId", null);
-        return this.providerHandlers.get(providerId);
+        if (providerId == null) {
+            return null;
+        }
+
+        ProviderHandler handler = this.providerHandlers.get(providerId);
+        if (handler == null && this.providerIds.contains(providerId)) {
+            handler = this.initProviderHandler(providerId);
+        }
+
+        return handler;
     }
 
     @Override
     protected void handleOnActivityResult(int requestCode, int resultCode, Intent data) {
         Log.d(PLUGIN_TAG, "Handle on Activity Result");
 
-        final PluginCall savedCall = getSavedCall();
-        if (savedCall == null) {
-            Log.d(PLUGIN_TAG, "No saved call on activity result.");
-            return;
-        }
-
-        final ProviderHandler handler = this.providerHandlerByRC.get(requestCode);
+        final String providerId = this.requestCodes.get(requestCode);
+        final ProviderHandler handler = providerId != null ? this.providerHandlers.get(providerId) : null;
         if (handler == null) {
             Log.w(PLUGIN_TAG, "No provider handler with given request code.");
-            savedCall.reject("No provider handler with given request code.");
         } else {
+            PluginCall call = this.pendingCalls.first(providerId);
+            this.traces.record(providerId, call != null ? call.getCallbackId() : null, AuthTraceBuffer.Event.ACTIVITY_RESULT);
+            this.metrics.end(providerId, SignInMetrics.Phase.INTERACTIVE);
+            this.metrics.begin(providerId, SignInMetrics.Phase.CREDENTIAL);
+
             handler.handleOnActivityResult(requestCode, resultCode, data);
         }
     }
 
-    public void handleAuthCredentials(AuthCredential credential) {
-        final PluginCall savedCall = getSavedCall();
-        if (savedCall == null) {
-            Log.d(PLUGIN_TAG, "No saved call on activity result.");
+    /**
+     * Resolve every call in flight for the given provider with the credentials.
+     * @param providerId The provider id of the flow which produced the credentials.
+     * @param credential The provider credentials.
+     */
+    public void handleAuthCredentials(String providerId, final AuthCredential credential) {
+        final List<PluginCall> calls = this.continueLinks(providerId, this.takePendingCalls(providerId), credential, null);
+        if (calls.isEmpty()) {
+            Log.d(PLUGIN_TAG, String.format("No pending call for %s on handle credentials.", providerId));
             return;
         }
 
+        this.traces.record(providerId, calls.get(0).getCallbackId(), AuthTraceBuffer.Event.CREDENTIAL_READY);
+
+        this.metrics.end(providerId, SignInMetrics.Phase.INTERACTIVE);
+        this.metrics.end(providerId, SignInMetrics.Phase.CREDENTIAL);
+        this.runInPipeline(new Runnable() {
+            @Override
+            public void run() {
+                handleAuthCredentials(calls, credential);
+            }
+        });
+    }
+
+    /**
+     * Resolve the given call with the credentials, for flows that keep track of their own call.
+     */
+    public void handleAuthCredentials(final PluginCall call, final AuthCredential credential) {
+        this.traces.record(call.getString("providerId"), call.getCallbackId(), AuthTraceBuffer.Event.CREDENTIAL_READY);
+        this.runInPipeline(new Runnable() {
+            @Override
+            public void run() {
+                handleAuthCredentials(Collections.singletonList(call), credential);
+            }
+        });
+    }
+
+    private void handleAuthCredentials(List<PluginCall> calls, AuthCredential credential) {
+        String providerId = calls.get(0).getString("providerId");
+
         if (credential == null) {
             Log.w(PLUGIN_TAG, "Sign In failure: credentials.");
-            savedCall.reject("Sign In failure: credentials.");
+            for (PluginCall call : calls) {
+                this.traces.record(providerId, call.getCallbackId(), AuthTraceBuffer.Event.REJECT, "NoCredential");
+                call.reject("Sign In failure: credentials.");
+            }
+            this.metrics.complete(providerId, SignInMetrics.Outcome.FAILURE);
             return;
         }
 
         if (this.nativeAuth) {
-            nativeAuth(savedCall, credential);
+            // the provider credential is exchanged once per app and tenant of the joined calls
+            Map<FirebaseAuth, List<PluginCall>> callsByAuth = new LinkedHashMap<>();
+            for (PluginCall call : calls) {
+                FirebaseAuth auth = this.getFirebaseAuth(call);
+                List<PluginCall> authCalls = callsByAuth.get(auth);
+                if (authCalls == null) {
+                    authCalls = new ArrayList<>();
+                    callsByAuth.put(auth, authCalls);
+                }
+                authCalls.add(call);
+            }
+
+            for (Map.Entry<FirebaseAuth, List<PluginCall>> entry : callsByAuth.entrySet()) {
+                nativeAuth(providerId, entry.getKey(), entry.getValue(), credential);
+            }
         } else {
-            JSObject jsResult = this.build(credential, savedCall);
-            savedCall.success(jsResult);
+            this.credentialCache.invalidate(providerId);
+            this.resolve(providerId, calls, this.build(providerId, credential, ResultFields.union(calls)));
         }
     }
 
-    private void nativeAuth(final PluginCall savedCall, final AuthCredential credential) {
-        this.firebaseAuth.signInWithCredential(credential)
-                .addOnCompleteListener(this.getActivity(), new OnCompleteListener<AuthResult>() {
+    private void nativeAuth(final String providerId, final FirebaseAuth firebaseAuth, final List<PluginCall> calls, final AuthCredential credential) {
+        final long startedAt = SignInMetrics.now();
+
+        firebaseAuth.signInWithCredential(credential)
+                .addOnCompleteListener(this.pipelineExecutor, new OnCompleteListener<AuthResult>() {
                     @Override
                     public void onComplete(@NonNull Task<AuthResult> task) {
+                        metrics.record(providerId, SignInMetrics.Phase.NATIVE_AUTH, startedAt);
+                        traces.record(providerId, calls.get(0).getCallbackId(), AuthTraceBuffer.Event.NATIVE_AUTH_DONE);
+
                         if (task.isSuccessful()) {
                             // Sign in success, update UI with the signed-in user's information
                             Log.d(PLUGIN_TAG, "Firebase Sign In with Credential succeed.");
@@ -213,54 +1190,166 @@ public class CapacitorFirebaseAuth extends Plugin {
 
                             if (user == null) {
                                 Log.w(PLUGIN_TAG, "Ops, no Firebase user after Sign In with Credential succeed.");
-                                savedCall.reject("Ops, no Firebase user after Sign In with Credential succeed");
+                                for (PluginCall call : calls) {
+                                    traces.record(providerId, call.getCallbackId(), AuthTraceBuffer.Event.REJECT, "NoFirebaseUser");
+                                    call.reject("Ops, no Firebase user after Sign In with Credential succeed");
+                                }
+                                metrics.complete(providerId, SignInMetrics.Outcome.FAILURE);
                             } else {
-                                JSObject jsResult = build(credential, savedCall);
-                                savedCall.success(jsResult);
+                                credentialCache.invalidate(providerId);
+                                ResultFields fields = ResultFields.union(calls);
+                                // the ID token of the user is only fetched when the user is requested
+                                if (nativeOnly && fields.has("user")) {
+                                    resolveWithUser(providerId, calls, credential, user);
+                                } else {
+                                    resolve(providerId, calls, build(providerId, credential, fields));
+                                }
                             }
                         } else {
                             // If sign in fails, display a message to the user.
                             Log.w(PLUGIN_TAG, "Firebase Sign In with Credential failure.", task.getException());
-                            savedCall.reject("Firebase Sign In with Credential failure.");
+                            String error = task.getException() != null ? task.getException().getClass().getSimpleName() : "Failure";
+                            for (PluginCall call : calls) {
+                                traces.record(providerId, call.getCallbackId(), AuthTraceBuffer.Event.REJECT, error);
+                                call.reject("Firebase Sign In with Credential failure.");
+                            }
+                            metrics.complete(providerId, SignInMetrics.Outcome.FAILURE);
                         }
                     }
-                }).addOnFailureListener(this.getActivity(), new OnFailureListener() {
-                    @Override
-                    public void onFailure(@NonNull Exception ex) {
-                        // If sign in fails, display a message to the user.
-                        Log.w(PLUGIN_TAG, "Firebase Sign In with Credential failure.", ex);
-                        savedCall.reject("Firebase Sign In with Credential failure.");
+                });
+    }
 
-                    }
-        });
+    /**
+     * Reject every call in flight for the given provider.
+     * @param providerId The provider id of the failed flow.
+     * @param message The failure message.
+     * @param e The failure cause, if any.
+     */
+    public void handleFailure(String providerId, String message, Exception e) {
+        List<PluginCall> calls = this.continueLinks(providerId, this.takePendingCalls(providerId), null, message);
+        if (calls.isEmpty()) {
+            Log.d(PLUGIN_TAG, String.format("No pending call for %s on handle failure.", providerId));
+            return;
+        }
+
+        for (PluginCall call : calls) {
+            this.reject(call, message, e);
+        }
+        this.metrics.complete(providerId, SignInMetrics.Outcome.FAILURE);
     }
 
-    public void handleFailure(String message, Exception e) {
-        PluginCall savedCall = getSavedCall();
-        if (savedCall == null) {
-            Log.d(PLUGIN_TAG, "No saved call on handle failure.");
+    /**
+     * Reject the given call, for flows that keep track of their own call.
+     */
+    public void handleFailure(PluginCall call, String message, Exception e) {
+        this.reject(call, message, e);
+        this.metrics.complete(call.getString("providerId"), SignInMetrics.Outcome.FAILURE);
+    }
+
+    /**
+     * Reject every call in flight for the given provider, because the user canceled the sign in.
+     * @param providerId The provider id of the canceled flow.
+     * @param message The cancel message.
+     * @param e The cancel cause, if any.
+     */
+    public void handleCancel(String providerId, String message, Exception e) {
+        List<PluginCall> calls = this.continueLinks(providerId, this.takePendingCalls(providerId), null, message);
+        if (calls.isEmpty()) {
+            Log.d(PLUGIN_TAG, String.format("No pending call for %s on handle cancel.", providerId));
             return;
         }
 
-        if (e != null) {
-            savedCall.reject(message, e);
+        for (PluginCall call : calls) {
+            this.reject(call, message, e);
+        }
+        this.metrics.complete(providerId, SignInMetrics.Outcome.CANCEL);
+    }
+
+    private void reject(PluginCall call, String message, Exception e) {
+        this.rejectCall(call, message, null, e);
+    }
+
+    /**
+     * Reject a call, recording the reject in the traces, for flows that keep track of their own call.
+     * @param code The error code, if any.
+     * @param e The failure cause, if any.
+     */
+    public void rejectCall(PluginCall call, String message, String code, Exception e) {
+        this.traces.record(call.getString("providerId"), call.getCallbackId(), AuthTraceBuffer.Event.REJECT,
+                code != null ? code : e != null ? e.getClass().getSimpleName() : "Failure");
+
+        if (code != null && e != null) {
+            call.reject(message, code, e);
+        } else if (code != null) {
+            call.reject(message, code);
+        } else if (e != null) {
+            call.reject(message, e);
         } else {
-            savedCall.reject(message);
+            call.reject(message);
         }
     }
 
-    private JSObject build(AuthCredential credential, PluginCall call) {
-        Log.d(PLUGIN_TAG, "Building authentication result");
+    /**
+     * Resolve the calls with the provider result plus the Firebase user and its ID token, so the web layer
+     * does not need to sign in again.
+     */
+    private void resolveWithUser(final String providerId, final List<PluginCall> calls, final AuthCredential credential, final FirebaseUser user) {
+        user.getIdToken(false).addOnCompleteListener(this.pipelineExecutor, new OnCompleteListener<GetTokenResult>() {
+            @Override
+            public void onComplete(@NonNull Task<GetTokenResult> task) {
+                if (!task.isSuccessful() || task.getResult() == null) {
+                    Log.w(PLUGIN_TAG, "Firebase ID token failure.", task.getException());
+                    for (PluginCall call : calls) {
+                        reject(call, "Firebase ID token failure.", task.getException());
+                    }
+                    metrics.complete(providerId, SignInMetrics.Outcome.FAILURE);
+                    return;
+                }
 
-        JSObject jsResult = new JSObject();
-        jsResult.put("callbackId", call.getCallbackId());
-        jsResult.put("providerId", call.getString("providerId"));
+                JSObject jsResult = build(providerId, credential, ResultFields.union(calls));
+                jsResult.put("user", buildUser(user, task.getResult()));
+                resolve(providerId, calls, jsResult);
+            }
+        });
+    }
 
-        ProviderHandler handler = this.getProviderHandler(call);
-        if (handler != null) {
-            handler.fillResult(credential, jsResult);
+    private JSObject buildUser(FirebaseUser user, GetTokenResult token) {
+        JSObject jsUser = new JSObject();
+        jsUser.put("uid", user.getUid());
+        jsUser.put("idToken", token.getToken());
+        jsUser.put("expirationTime", token.getExpirationTimestamp() * 1000);
+        jsUser.put("signInProvider", token.getSignInProvider());
+        jsUser.put("displayName", user.getDisplayName());
+        jsUser.put("email", user.getEmail());
+        jsUser.put("emailVerified", user.isEmailVerified());
+        jsUser.put("phoneNumber", user.getPhoneNumber());
+        jsUser.put("photoUrl", user.getPhotoUrl() != null ? user.getPhotoUrl().toString() : null);
+        return jsUser;
+    }
+
+    /**
+     * Resolve the calls of a successful sign in with the same result, copied for each call.
+     */
+    private void resolve(String providerId, List<PluginCall> calls, JSObject jsResult) {
+        for (PluginCall call : calls) {
+            call.success(ResultFields.forCall(jsResult, call));
+            this.traces.record(providerId, call.getCallbackId(), AuthTraceBuffer.Event.RESOLVE);
         }
 
-        return jsResult;
+        // the snapshot only keeps the complete results, with the user of the default app
+        Long generation = this.signInGenerations.remove(providerId);
+        boolean hasTenantUser = jsResult.has("user") && this.getFirebaseAuth(calls.get(0)) != this.firebaseAuth;
+        if (generation != null && !calls.get(0).getData().has("data") && !hasTenantUser && ResultFields.union(calls).isAll()) {
+            this.persistSnapshot(providerId, jsResult, generation);
+        }
+        this.metrics.complete(providerId, SignInMetrics.Outcome.SUCCESS);
+    }
+
+    /**
+     * @param fields The fields requested by the calls, the handler skips the others.
+     */
+    private JSObject build(String providerId, AuthCredential credential, ResultFields fields) {
+        Log.d(PLUGIN_TAG, "Building authentication result");
+        return this.resultBuilder.build(providerId, this.providerHandlers.get(providerId), credential, fields);
     }
 }
@@ -0,0 +1,97 @@
+package com.baumblatt.capacitor.firebase.auth;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory cache of the provider tokens, keyed by provider id.
+ *
+ * The token is stored together with its decoded expiry, so checking if the user is still authenticated
+ * is a constant time lookup instead of a provider SDK query plus a token decode.
+ */
+public class CredentialCache {
+    private static final long EXPIRY_LEEWAY_MILLIS = 10 * 1000;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private Listener listener;
+
+    public interface Listener {
+        void onPut(String providerId, Entry entry);
+    }
+
+    public static class Entry {
+        private final String token;
+        private final long expiresAt;
+
+        Entry(String token, long expiresAt) {
+            this.token = token;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getToken() {
+            return token;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+
+        public boolean isExpired() {
+            return System.currentTimeMillis() + EXPIRY_LEEWAY_MILLIS >= this.expiresAt;
+        }
+    }
+
+    /**
+     * Store the provider token.
+     * @param providerId The provider id.
+     * @param token The provider token.
+     * @param expiresAt The token expiry, in milliseconds since epoch.
+     */
+    public void put(String providerId, String token, long expiresAt) {
+        Entry entry = new Entry(token, expiresAt);
+        this.entries.put(providerId, entry);
+
+        if (this.listener != null) {
+            this.listener.onPut(providerId, entry);
+        }
+    }
+
+    /**
+     * @return The cached entry of the provider, or null if there is none or it is expired.
+     */
+    public Entry get(String providerId) {
+        Entry entry = this.entries.get(providerId);
+        if (entry == null) {
+            return null;
+        }
+
+        if (entry.isExpired()) {
+            this.entries.remove(providerId, entry);
+            return null;
+        }
+
+        return entry;
+    }
+
+    /**
+     * @return The cached token of the provider, or null if there is none or it is expired.
+     */
+    public String getToken(String providerId) {
+        Entry entry = this.get(providerId);
+        return entry != null ? entry.getToken() : null;
+    }
+
+    public void invalidate(String providerId) {
+        if (providerId != null) {
+            this.entries.remove(providerId);
+        }
+    }
+
+    public void clear() {
+        this.entries.clear();
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+}
@@ -0,0 +1,160 @@
+package com.baumblatt.capacitor.firebase.auth;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashed timer wheel shared by every sign in deadline.
+ *
+ * A single daemon thread advances the wheel one slot per tick, and only while there are deadlines,
+ * so a deadline costs an insertion in a slot list instead of a scheduled task of its own.
+ * The deadlines fire with the precision of one tick, on the wheel thread.
+ */
+public class DeadlineWheel {
+    private static final String WHEEL_TAG = "DeadlineWheel";
+
+    public class Timeout {
+        private final Runnable task;
+        private int slot;
+        private long rounds;
+
+        Timeout(Runnable task, int slot, long rounds) {
+            this.task = task;
+            this.slot = slot;
+            this.rounds = rounds;
+        }
+
+        /**
+         * Cancel the deadline, nothing happens if it already fired.
+         */
+        public void cancel() {
+            DeadlineWheel.this.cancel(this);
+        }
+    }
+
+    private final long tickMillis;
+    private final List<List<Timeout>> slots;
+    private int cursor = 0;
+    private int size = 0;
+
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> ticker;
+
+    /**
+     * @param tickMillis The wheel precision, in milliseconds.
+     * @param slotCount The number of slots, a deadline further than one turn waits for more rounds.
+     */
+    public DeadlineWheel(long tickMillis, int slotCount) {
+        this.tickMillis = tickMillis;
+        this.slots = new ArrayList<>(slotCount);
+        for (int index = 0; index < slotCount; index++) {
+            this.slots.add(new ArrayList<Timeout>());
+        }
+    }
+
+    /**
+     * Run the task once the delay elapses, unless the returned deadline is canceled before.
+     */
+    public synchronized Timeout schedule(long delayMillis, Runnable task) {
+        long ticks = Math.max(1, (delayMillis + this.tickMillis - 1) / this.tickMillis);
+        int slot = (int) ((this.cursor + ticks) % this.slots.size());
+
+        Timeout timeout = new Timeout(task, slot, (ticks - 1) / this.slots.size());
+        this.slots.get(slot).add(timeout);
+        this.size++;
+
+        if (this.ticker == null) {
+            this.ticker = this.getExecutor().scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    tick();
+                }
+            }, this.tickMillis, this.tickMillis, TimeUnit.MILLISECONDS);
+        }
+
+        return timeout;
+    }
+
+    private synchronized void cancel(Timeout timeout) {
+        if (this.slots.get(timeout.slot).remove(timeout)) {
+            this.size--;
+            this.stopIfEmpty();
+        }
+    }
+
+    private void tick() {
+        List<Runnable> expired = new ArrayList<>();
+
+        synchronized (this) {
+            this.cursor = (this.cursor + 1) % this.slots.size();
+
+            Iterator<Timeout> iterator = this.slots.get(this.cursor).iterator();
+            while (iterator.hasNext()) {
+                Timeout timeout = iterator.next();
+                if (timeout.rounds > 0) {
+                    timeout.rounds--;
+                } else {
+                    iterator.remove();
+                    this.size--;
+                    expired.add(timeout.task);
+                }
+            }
+
+            this.stopIfEmpty();
+        }
+
+        for (Runnable task : expired) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                Log.w(WHEEL_TAG, "Deadline task failure.", e);
+            }
+        }
+    }
+
+    /**
+     * Drop every deadline without running it, and stop the wheel thread.
+     */
+    public synchronized void shutdown() {
+        for (List<Timeout> slot : this.slots) {
+            slot.clear();
+        }
+        this.size = 0;
+        this.stopIfEmpty();
+
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+            this.executor = null;
+        }
+    }
+
+    private void stopIfEmpty() {
+        if (this.size == 0 && this.ticker != null) {
+            this.ticker.cancel(false);
+            this.ticker = null;
+        }
+    }
+
+    private ScheduledExecutorService getExecutor() {
+        if (this.executor == null) {
+            this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, WHEEL_TAG);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        return this.executor;
+    }
+}
@@ -0,0 +1,90 @@
+package com.baumblatt.capacitor.firebase.auth;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.auth.FirebaseAuth;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The FirebaseAuth instances keyed by Firebase app name and tenant id, created on first use and reused.
+ *
+ * A FirebaseAuth instance holds a single signed in user, so each tenant gets its own Firebase app,
+ * initialized with the options of the app it belongs to. That way the flows of different tenants run
+ * side by side without switching the tenant of a shared instance.
+ */
+public class FirebaseAuthPool {
+    private static final String POOL_TAG = "FirebaseAuthPool";
+
+    private final Context context;
+    private final String languageCode;
+    private final AuthBackends backends;
+    private final Map<String, FirebaseAuth> instances = new ConcurrentHashMap<>();
+
+    public FirebaseAuthPool(Context context, String languageCode, AuthBackends backends) {
+        this.context = context.getApplicationContext();
+        this.languageCode = languageCode;
+        this.backends = backends;
+    }
+
+    /**
+     * @param appName The Firebase app name, or null for the default app.
+     * @param tenantId The Identity Platform tenant id, or null for the project level users.
+     * @return The FirebaseAuth instance of the app and tenant.
+     * @throws IllegalStateException If there is no Firebase app with the given name.
+     */
+    public FirebaseAuth get(String appName, String tenantId) {
+        String name = appName != null ? appName : FirebaseApp.DEFAULT_APP_NAME;
+        String key = tenantId != null ? name + ":" + tenantId : name;
+
+        FirebaseAuth auth = this.instances.get(key);
+        if (auth == null) {
+            auth = this.create(name, tenantId, key);
+        }
+
+        return auth;
+    }
+
+    private synchronized FirebaseAuth create(String name, String tenantId, String key) {
+        FirebaseAuth auth = this.instances.get(key);
+        if (auth != null) {
+            return auth;
+        }
+
+        Log.d(POOL_TAG, String.format("Creating the FirebaseAuth instance of %s", key));
+        FirebaseApp app = FirebaseApp.getInstance(name);
+        if (tenantId != null) {
+            app = this.getTenantApp(app, key);
+            auth = this.backends.getFirebaseAuth(app);
+            auth.setTenantId(tenantId);
+        } else {
+            auth = this.backends.getFirebaseAuth(app);
+        }
+
+        auth.setLanguageCode(this.languageCode);
+        this.instances.put(key, auth);
+        return auth;
+    }
+
+    private FirebaseApp getTenantApp(FirebaseApp app, String name) {
+        for (FirebaseApp existing : FirebaseApp.getApps(this.context)) {
+            if (existing.getName().equals(name)) {
+                return existing;
+            }
+        }
+
+        return FirebaseApp.initializeApp(this.context, app.getOptions(), name);
+    }
+
+    /**
+     * @return The instances created so far.
+     */
+    public List<FirebaseAuth> getAll() {
+        return new ArrayList<>(this.instances.values());
+    }
+}
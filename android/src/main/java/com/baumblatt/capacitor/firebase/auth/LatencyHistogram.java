@@ -0,0 +1,81 @@
+package com.baumblatt.capacitor.firebase.auth;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histogram with fixed buckets, cheap enough to record every sign in phase.
+ */
+public class LatencyHistogram {
+    /**
+     * Upper bounds of the buckets, in milliseconds. The last bucket has no upper bound.
+     */
+    static final long[] BOUNDS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000};
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long millis) {
+        int index = 0;
+        while (index < BOUNDS.length && millis > BOUNDS[index]) {
+            index++;
+        }
+
+        this.buckets.incrementAndGet(index);
+        this.count.incrementAndGet();
+        this.sum.addAndGet(millis);
+
+        long current = this.max.get();
+        while (millis > current && !this.max.compareAndSet(current, millis)) {
+            current = this.max.get();
+        }
+    }
+
+    public long getCount() {
+        return this.count.get();
+    }
+
+    /**
+     * @return The upper bound of the bucket holding the given percentile, or the max recorded latency
+     * for the last bucket; zero if nothing was recorded.
+     */
+    public long percentile(double percentile) {
+        long total = this.count.get();
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int index = 0; index < BOUNDS.length; index++) {
+            seen += this.buckets.get(index);
+            if (seen >= rank) {
+                return Math.min(BOUNDS[index], this.max.get());
+            }
+        }
+
+        return this.max.get();
+    }
+
+    public JSObject toJSObject() {
+        JSArray buckets = new JSArray();
+        for (int index = 0; index < this.buckets.length(); index++) {
+            buckets.put(this.buckets.get(index));
+        }
+
+        JSObject jsHistogram = new JSObject();
+        jsHistogram.put("count", this.count.get());
+        jsHistogram.put("sum", this.sum.get());
+        jsHistogram.put("max", this.max.get());
+        jsHistogram.put("p50", this.percentile(50));
+        jsHistogram.put("p90", this.percentile(90));
+        jsHistogram.put("p99", this.percentile(99));
+        jsHistogram.put("buckets", buckets);
+        return jsHistogram;
+    }
+}
@@ -0,0 +1,96 @@
+package com.baumblatt.capacitor.firebase.auth;
+
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+import com.google.firebase.auth.AuthCredential;
+import com.google.firebase.auth.FirebaseAuth;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * State of a <code>link</code> call: the provider flows still to run, the credentials collected so far
+ * and the outcome of each provider.
+ *
+ * The provider flows run back to back, then the collected credentials are linked to the current user,
+ * one after the other, and the call is resolved once with every outcome.
+ */
+public class LinkSession {
+    private final PluginCall call;
+    private final FirebaseAuth firebaseAuth;
+    private final Iterator<String> providerIds;
+    private final Map<String, AuthCredential> credentials = new LinkedHashMap<>();
+    private final Map<String, Long> startedAt = new HashMap<>();
+    private final JSObject outcomes = new JSObject();
+
+    public LinkSession(PluginCall call, FirebaseAuth firebaseAuth, List<String> providerIds) {
+        this.call = call;
+        this.firebaseAuth = firebaseAuth;
+        this.providerIds = providerIds.iterator();
+    }
+
+    public PluginCall getCall() {
+        return this.call;
+    }
+
+    public FirebaseAuth getFirebaseAuth() {
+        return this.firebaseAuth;
+    }
+
+    /**
+     * @return The next provider to run the flow of, or null when every flow ran.
+     */
+    public synchronized String next() {
+        if (!this.providerIds.hasNext()) {
+            return null;
+        }
+
+        String providerId = this.providerIds.next();
+        this.startedAt.put(providerId, SignInMetrics.now());
+        return providerId;
+    }
+
+    public synchronized void collect(String providerId, AuthCredential credential) {
+        this.credentials.put(providerId, credential);
+    }
+
+    /**
+     * @return The collected credentials, in the order the providers were given.
+     */
+    public synchronized Map<String, AuthCredential> getCredentials() {
+        return new LinkedHashMap<>(this.credentials);
+    }
+
+    public synchronized void linked(String providerId, boolean alreadyLinked) {
+        JSObject jsOutcome = this.outcome(providerId);
+        jsOutcome.put("linked", true);
+        if (alreadyLinked) {
+            jsOutcome.put("alreadyLinked", true);
+        }
+    }
+
+    public synchronized void fail(String providerId, String message) {
+        JSObject jsOutcome = this.outcome(providerId);
+        jsOutcome.put("linked", false);
+        jsOutcome.put("error", message);
+    }
+
+    private JSObject outcome(String providerId) {
+        Long providerStartedAt = this.startedAt.get(providerId);
+
+        JSObject jsOutcome = new JSObject();
+        jsOutcome.put("duration", providerStartedAt != null ? SignInMetrics.now() - providerStartedAt : 0);
+        this.outcomes.put(providerId, jsOutcome);
+        return jsOutcome;
+    }
+
+    /**
+     * @return The outcome of each provider, keyed by provider id.
+     */
+    public synchronized JSObject getOutcomes() {
+        return this.outcomes;
+    }
+}
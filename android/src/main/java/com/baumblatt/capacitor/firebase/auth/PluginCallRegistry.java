@@ -0,0 +1,78 @@
+package com.baumblatt.capacitor.firebase.auth;
+
+import com.getcapacitor.PluginCall;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Registry of the in-flight sign in calls, keyed by provider id.
+ *
+ * Each provider has its own independent flow, so a phone verification can run while a Google sign in
+ * is pending. Repeated calls for a provider with a flow in flight join it and are resolved together.
+ */
+public class PluginCallRegistry {
+    private final Map<String, List<PluginCall>> calls = new HashMap<>();
+
+    /**
+     * Register the call under the given key.
+     * @return true if the call starts a new flow, false if it joined the one already in flight.
+     */
+    public synchronized boolean add(String key, PluginCall call) {
+        List<PluginCall> pending = this.calls.get(key);
+        if (pending != null) {
+            pending.add(call);
+            return false;
+        }
+
+        pending = new ArrayList<>();
+        pending.add(call);
+        this.calls.put(key, pending);
+        return true;
+    }
+
+    /**
+     * Remove and return every call registered under the given key.
+     */
+    public synchronized List<PluginCall> remove(String key) {
+        List<PluginCall> pending = this.calls.remove(key);
+        return pending != null ? pending : Collections.<PluginCall>emptyList();
+    }
+
+    /**
+     * Remove the call registered under the given key, dropping the key with its last call.
+     * @return true if the call was registered.
+     */
+    public synchronized boolean remove(String key, PluginCall call) {
+        List<PluginCall> pending = this.calls.get(key);
+        if (pending == null || !pending.remove(call)) {
+            return false;
+        }
+
+        if (pending.isEmpty()) {
+            this.calls.remove(key);
+        }
+        return true;
+    }
+
+    /**
+     * @return The call which started the flow in flight under the given key, or null if there is none.
+     */
+    public synchronized PluginCall first(String key) {
+        List<PluginCall> pending = this.calls.get(key);
+        return pending != null ? pending.get(0) : null;
+    }
+
+    public synchronized Set<String> keys() {
+        return new HashSet<>(this.calls.keySet());
+    }
+
+    public synchronized boolean isPending(String key) {
+        return this.calls.containsKey(key);
+    }
+}
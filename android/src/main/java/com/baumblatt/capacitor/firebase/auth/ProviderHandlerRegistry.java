@@ -0,0 +1,102 @@
+package com.baumblatt.capacitor.firebase.auth;
+
+import com.baumblatt.capacitor.firebase.auth.handlers.AppleProviderHandler;
+import com.baumblatt.capacitor.firebase.auth.handlers.FacebookProviderHandler;
+import com.baumblatt.capacitor.firebase.auth.handlers.GoogleProviderHandler;
+import com.baumblatt.capacitor.firebase.auth.handlers.OAuthProviderHandler;
+import com.baumblatt.capacitor.firebase.auth.handlers.PhoneProviderHandler;
+import com.baumblatt.capacitor.firebase.auth.handlers.ProviderHandler;
+import com.baumblatt.capacitor.firebase.auth.handlers.ProviderHandlerFactory;
+import com.baumblatt.capacitor.firebase.auth.handlers.TwitterProviderHandler;
+import com.google.firebase.auth.FacebookAuthProvider;
+import com.google.firebase.auth.GoogleAuthProvider;
+import com.google.firebase.auth.PhoneAuthProvider;
+import com.google.firebase.auth.TwitterAuthProvider;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The provider handler factories, keyed by provider id.
+ *
+ * Besides the built in providers, the Firebase generic OAuth providers (Microsoft, GitHub and Yahoo) are
+ * handled by {@link OAuthProviderHandler}. Apps can register their own handlers, or replace the built in
+ * ones, before the plugin is loaded:
+ * <pre>
+ * ProviderHandlerRegistry.register("oidc.example", new ProviderHandlerFactory() {
+ *     public ProviderHandler create() {
+ *         return new OAuthProviderHandler("oidc.example");
+ *     }
+ * });
+ * </pre>
+ */
+public final class ProviderHandlerRegistry {
+    private static final Map<String, ProviderHandlerFactory> factories = new ConcurrentHashMap<>();
+
+    static {
+        register(GoogleAuthProvider.PROVIDER_ID, new ProviderHandlerFactory() {
+            @Override
+            public ProviderHandler create() {
+                return new GoogleProviderHandler();
+            }
+        });
+        register(TwitterAuthProvider.PROVIDER_ID, new ProviderHandlerFactory() {
+            @Override
+            public ProviderHandler create() {
+                return new TwitterProviderHandler();
+            }
+        });
+        register(FacebookAuthProvider.PROVIDER_ID, new ProviderHandlerFactory() {
+            @Override
+            public ProviderHandler create() {
+                return new FacebookProviderHandler();
+            }
+        });
+        register(AppleProviderHandler.APPLE_PROVIDER_ID, new ProviderHandlerFactory() {
+            @Override
+            public ProviderHandler create() {
+                return new AppleProviderHandler();
+            }
+        });
+        register(PhoneAuthProvider.PROVIDER_ID, new ProviderHandlerFactory() {
+            @Override
+            public ProviderHandler create() {
+                return new PhoneProviderHandler();
+            }
+        });
+
+        for (final String providerId : new String[]{"microsoft.com", "github.com", "yahoo.com"}) {
+            register(providerId, new ProviderHandlerFactory() {
+                @Override
+                public ProviderHandler create() {
+                    return new OAuthProviderHandler(providerId);
+                }
+            });
+        }
+    }
+
+    private ProviderHandlerRegistry() {
+    }
+
+    /**
+     * Register the factory of the provider handler, replacing the previous one if any.
+     * @param providerId The provider id, as declared in the plugin configuration.
+     * @param factory The handler factory.
+     */
+    public static void register(String providerId, ProviderHandlerFactory factory) {
+        factories.put(providerId.toLowerCase(Locale.US), factory);
+    }
+
+    /**
+     * @return A new handler of the provider, or null if the provider is not supported.
+     */
+    public static ProviderHandler create(String providerId) {
+        ProviderHandlerFactory factory = factories.get(providerId.toLowerCase(Locale.US));
+        return factory != null ? factory.create() : null;
+    }
+
+    public static boolean isSupported(String providerId) {
+        return factories.containsKey(providerId.toLowerCase(Locale.US));
+    }
+}
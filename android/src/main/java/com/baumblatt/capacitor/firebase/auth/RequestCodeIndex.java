@@ -0,0 +1,21 @@
+package com.baumblatt.capacitor.firebase.auth;
+
+import android.util.SparseArray;
+
+/**
+ * The provider ids by activity request code, for dispatching the activity results to their handler.
+ */
+public class RequestCodeIndex {
+    private final SparseArray<String> providerIds = new SparseArray<>();
+
+    public synchronized void put(int requestCode, String providerId) {
+        this.providerIds.put(requestCode, providerId);
+    }
+
+    /**
+     * @return The provider id, or null if no handler uses the request code.
+     */
+    public synchronized String get(int requestCode) {
+        return this.providerIds.get(requestCode);
+    }
+}
@@ -0,0 +1,32 @@
+package com.baumblatt.capacitor.firebase.auth;
+
+import com.baumblatt.capacitor.firebase.auth.handlers.ResultFiller;
+import com.getcapacitor.JSObject;
+import com.google.firebase.auth.AuthCredential;
+
+/**
+ * Builds the sign in result of a provider, recording the build phase of the sign in metrics.
+ */
+public class ResultBuilder {
+    private final SignInMetrics metrics;
+
+    public ResultBuilder(SignInMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param filler The provider parts of the result, or null for the common parts only.
+     * @param fields The fields requested by the calls, the filler skips the others.
+     */
+    public JSObject build(String providerId, ResultFiller filler, AuthCredential credential, ResultFields fields) {
+        long startedAt = SignInMetrics.now();
+
+        JSObject jsResult = fields.newResult(providerId);
+        if (filler != null) {
+            filler.fillResult(credential, jsResult, fields);
+        }
+
+        this.metrics.record(providerId, SignInMetrics.Phase.BUILD, startedAt);
+        return jsResult;
+    }
+}
@@ -0,0 +1,122 @@
+package com.baumblatt.capacitor.firebase.auth;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The fields of the sign in result requested by the optional <code>fields</code> mask of the call, e.g. only the
+ * <code>idToken</code>, or only <code>signedIn</code> for a status probe. The handlers skip the parts not requested,
+ * and the bridge does not carry them. Without a mask every field is requested, except <code>signedIn</code>.
+ */
+public final class ResultFields {
+    public static final String SIGNED_IN = "signedIn";
+    public static final ResultFields ALL = new ResultFields(null);
+
+    private final Set<String> fields;
+
+    private ResultFields(Set<String> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * @return The fields requested by the call, {@link #ALL} if it has no mask.
+     */
+    public static ResultFields of(PluginCall call) {
+        JSArray jsFields = call.getArray("fields");
+        if (jsFields == null) {
+            return ALL;
+        }
+
+        Set<String> fields = new HashSet<>();
+        for (int index = 0; index < jsFields.length(); index++) {
+            String field = jsFields.optString(index, null);
+            if (field != null) {
+                fields.add(field);
+            }
+        }
+
+        return new ResultFields(Collections.unmodifiableSet(fields));
+    }
+
+    /**
+     * @return The fields requested by any of the calls joining the same sign in.
+     */
+    public static ResultFields union(List<PluginCall> calls) {
+        Set<String> fields = new HashSet<>();
+        for (PluginCall call : calls) {
+            ResultFields callFields = of(call);
+            if (callFields.isAll()) {
+                return ALL;
+            }
+            fields.addAll(callFields.fields);
+        }
+
+        return new ResultFields(Collections.unmodifiableSet(fields));
+    }
+
+    public boolean isAll() {
+        return this.fields == null;
+    }
+
+    public boolean has(String field) {
+        return this.fields == null || this.fields.contains(field);
+    }
+
+    /**
+     * @return true if the signed in flag was explicitly requested.
+     */
+    public boolean hasSignedIn() {
+        return this.fields != null && this.fields.contains(SIGNED_IN);
+    }
+
+    /**
+     * @return true if only the signed in flag was requested, a status probe which must not start a sign in.
+     */
+    public boolean isSignedInProbe() {
+        return this.fields != null && this.fields.size() == 1 && this.fields.contains(SIGNED_IN);
+    }
+
+    /**
+     * @return A new sign in result, with the provider id if it is requested, for the handler to fill.
+     */
+    public JSObject newResult(String providerId) {
+        JSObject jsResult = new JSObject();
+        if (this.has("providerId")) {
+            jsResult.put("providerId", providerId);
+        }
+
+        return jsResult;
+    }
+
+    /**
+     * @return The result of the call, with its callback id, and only the fields it requested.
+     */
+    public static JSObject forCall(JSObject jsResult, PluginCall call) {
+        ResultFields fields = of(call);
+
+        JSObject jsCallResult = new JSObject();
+        if (fields.has("callbackId")) {
+            jsCallResult.put("callbackId", call.getCallbackId());
+        }
+        if (fields.hasSignedIn()) {
+            jsCallResult.put(SIGNED_IN, true);
+        }
+
+        Iterator<String> keys = jsResult.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (fields.has(key)) {
+                jsCallResult.put(key, jsResult.opt(key));
+            }
+        }
+
+        return jsCallResult;
+    }
+}
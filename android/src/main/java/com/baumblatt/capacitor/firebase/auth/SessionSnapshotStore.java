@@ -0,0 +1,147 @@
+package com.baumblatt.capacitor.firebase.auth;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+import android.util.Base64;
+import android.util.Log;
+
+import androidx.annotation.RequiresApi;
+
+import com.getcapacitor.JSObject;
+
+import org.json.JSONObject;
+
+import java.nio.charset.Charset;
+import java.security.KeyStore;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+/**
+ * Snapshot of the last successful sign in result per provider, persisted across process death.
+ *
+ * The snapshot is encrypted with an AES key kept in the Android Keystore, and stored in app-private
+ * shared preferences. It is valid until the token expires or it reaches the configured max age,
+ * whatever comes first. Persistence needs API 23, older devices always go back to the providers.
+ */
+public class SessionSnapshotStore {
+    private static final String SNAPSHOT_TAG = "SessionSnapshotStore";
+    private static final String PREFERENCES_NAME = "CapacitorFirebaseAuth.session";
+    private static final String KEYSTORE = "AndroidKeyStore";
+    private static final String KEY_ALIAS = "CapacitorFirebaseAuth.session";
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int TAG_LENGTH = 128;
+    private static final long EXPIRY_LEEWAY_MILLIS = 10 * 1000;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final SharedPreferences preferences;
+    private final long maxAgeMillis;
+
+    /**
+     * @param maxAgeMillis How long a snapshot may answer the sign in, regardless of the token expiry.
+     */
+    public SessionSnapshotStore(Context context, long maxAgeMillis) {
+        this.preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    public static boolean isSupported() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.M;
+    }
+
+    /**
+     * Persist the sign in result of the provider.
+     * @param providerId The provider id.
+     * @param result The sign in result, without the call specific fields.
+     * @param tokenExpiresAt The token expiry in milliseconds since epoch, or zero if it is unknown.
+     */
+    public void save(String providerId, JSObject result, long tokenExpiresAt) {
+        if (!isSupported()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long expiresAt = now + this.maxAgeMillis;
+        if (tokenExpiresAt > 0) {
+            expiresAt = Math.min(expiresAt, tokenExpiresAt);
+        }
+
+        try {
+            JSONObject snapshot = new JSONObject();
+            snapshot.put("result", result);
+            snapshot.put("expiresAt", expiresAt);
+
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.ENCRYPT_MODE, this.getKey());
+            byte[] encrypted = cipher.doFinal(snapshot.toString().getBytes(UTF_8));
+
+            String value = Base64.encodeToString(cipher.getIV(), Base64.NO_WRAP) + ":"
+                    + Base64.encodeToString(encrypted, Base64.NO_WRAP);
+            this.preferences.edit().putString(providerId, value).apply();
+        } catch (Exception e) {
+            Log.w(SNAPSHOT_TAG, String.format("Fail to persist the %s session snapshot.", providerId), e);
+        }
+    }
+
+    /**
+     * @return The persisted sign in result of the provider, or null if there is none or it is stale.
+     */
+    public JSObject get(String providerId) {
+        String value = this.preferences.getString(providerId, null);
+        if (value == null || !isSupported()) {
+            return null;
+        }
+
+        try {
+            String[] parts = value.split(":");
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, this.getKey(),
+                    new GCMParameterSpec(TAG_LENGTH, Base64.decode(parts[0], Base64.NO_WRAP)));
+            byte[] decrypted = cipher.doFinal(Base64.decode(parts[1], Base64.NO_WRAP));
+
+            JSONObject snapshot = new JSONObject(new String(decrypted, UTF_8));
+            if (System.currentTimeMillis() + EXPIRY_LEEWAY_MILLIS >= snapshot.getLong("expiresAt")) {
+                Log.d(SNAPSHOT_TAG, String.format("The %s session snapshot is stale.", providerId));
+                this.remove(providerId);
+                return null;
+            }
+
+            return new JSObject(snapshot.getJSONObject("result").toString());
+        } catch (Exception e) {
+            Log.w(SNAPSHOT_TAG, String.format("Fail to read the %s session snapshot.", providerId), e);
+            this.remove(providerId);
+            return null;
+        }
+    }
+
+    public void remove(String providerId) {
+        this.preferences.edit().remove(providerId).apply();
+    }
+
+    public void clear() {
+        this.preferences.edit().clear().apply();
+    }
+
+    @RequiresApi(api = Build.VERSION_CODES.M)
+    private SecretKey getKey() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance(KEYSTORE);
+        keyStore.load(null);
+
+        KeyStore.Entry entry = keyStore.getEntry(KEY_ALIAS, null);
+        if (entry instanceof KeyStore.SecretKeyEntry) {
+            return ((KeyStore.SecretKeyEntry) entry).getSecretKey();
+        }
+
+        KeyGenerator generator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, KEYSTORE);
+        generator.init(new KeyGenParameterSpec.Builder(KEY_ALIAS, KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
+                .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+                .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+                .build());
+        return generator.generateKey();
+    }
+}
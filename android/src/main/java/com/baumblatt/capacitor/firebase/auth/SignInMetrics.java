@@ -0,0 +1,146 @@
+package com.baumblatt.capacitor.firebase.auth;
+
+import android.os.SystemClock;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per provider latency of each sign in phase, plus the outcome counters.
+ */
+public class SignInMetrics {
+
+    public enum Phase {
+        /** The provider handler initialization. */
+        INIT,
+        /** From the interactive flow launch until the activity result. */
+        INTERACTIVE,
+        /**
+         * From the activity result until the provider credential is ready. The Firebase managed flows have no
+         * activity result, their credential comes with the flow task, so it spans the whole flow.
+         */
+        CREDENTIAL,
+        /** The Firebase sign in with the credential, when native auth is enabled. */
+        NATIVE_AUTH,
+        /** The result assembly, including the handler fillResult. */
+        BUILD,
+        /** From the sign in call until it is resolved. */
+        TOTAL
+    }
+
+    public enum Outcome {
+        SUCCESS, FAILURE, CANCEL, TIMEOUT
+    }
+
+    private static class ProviderMetrics {
+        final LatencyHistogram[] phases = new LatencyHistogram[Phase.values().length];
+        final AtomicLong[] outcomes = new AtomicLong[Outcome.values().length];
+        final Map<Phase, Long> started = new ConcurrentHashMap<>();
+
+        ProviderMetrics() {
+            for (int index = 0; index < this.phases.length; index++) {
+                this.phases[index] = new LatencyHistogram();
+            }
+            for (int index = 0; index < this.outcomes.length; index++) {
+                this.outcomes[index] = new AtomicLong();
+            }
+        }
+    }
+
+    private final ConcurrentHashMap<String, ProviderMetrics> providers = new ConcurrentHashMap<>();
+
+    public static long now() {
+        return SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Record a phase which started at the given time, as returned by {@link #now()}.
+     */
+    public void record(String providerId, Phase phase, long startedAt) {
+        this.get(providerId).phases[phase.ordinal()].record(now() - startedAt);
+    }
+
+    /**
+     * Mark the start of a phase which ends on another callback, see {@link #end(String, Phase)}.
+     */
+    public void begin(String providerId, Phase phase) {
+        this.get(providerId).started.put(phase, now());
+    }
+
+    /**
+     * Record a phase started with {@link #begin(String, Phase)}, if there is one.
+     */
+    public void end(String providerId, Phase phase) {
+        Long startedAt = this.get(providerId).started.remove(phase);
+        if (startedAt != null) {
+            this.record(providerId, phase, startedAt);
+        }
+    }
+
+    /**
+     * Count the outcome of a sign in and record its total time, discarding the unfinished phases.
+     */
+    public void complete(String providerId, Outcome outcome) {
+        ProviderMetrics metrics = this.get(providerId);
+        metrics.outcomes[outcome.ordinal()].incrementAndGet();
+
+        this.end(providerId, Phase.TOTAL);
+        metrics.started.clear();
+    }
+
+    public void reset() {
+        this.providers.clear();
+    }
+
+    public JSObject toJSObject() {
+        JSArray bounds = new JSArray();
+        for (long bound : LatencyHistogram.BOUNDS) {
+            bounds.put(bound);
+        }
+
+        JSObject jsProviders = new JSObject();
+        for (Map.Entry<String, ProviderMetrics> entry : this.providers.entrySet()) {
+            ProviderMetrics metrics = entry.getValue();
+
+            JSObject jsProvider = new JSObject();
+            for (Outcome outcome : Outcome.values()) {
+                jsProvider.put(outcome.name().toLowerCase(Locale.US), metrics.outcomes[outcome.ordinal()].get());
+            }
+
+            JSObject jsPhases = new JSObject();
+            for (Phase phase : Phase.values()) {
+                LatencyHistogram histogram = metrics.phases[phase.ordinal()];
+                if (histogram.getCount() > 0) {
+                    jsPhases.put(phase.name().toLowerCase(Locale.US), histogram.toJSObject());
+                }
+            }
+            jsProvider.put("phases", jsPhases);
+
+            jsProviders.put(entry.getKey(), jsProvider);
+        }
+
+        JSObject jsMetrics = new JSObject();
+        jsMetrics.put("bounds", bounds);
+        jsMetrics.put("providers", jsProviders);
+        return jsMetrics;
+    }
+
+    private ProviderMetrics get(String providerId) {
+        String key = providerId != null ? providerId : "unknown";
+        ProviderMetrics metrics = this.providers.get(key);
+        if (metrics == null) {
+            metrics = new ProviderMetrics();
+            ProviderMetrics previous = this.providers.putIfAbsent(key, metrics);
+            if (previous != null) {
+                metrics = previous;
+            }
+        }
+
+        return metrics;
+    }
+}
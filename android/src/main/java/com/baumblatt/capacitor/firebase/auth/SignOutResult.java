@@ -0,0 +1,76 @@
+package com.baumblatt.capacitor.firebase.auth;
+
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The status and duration of each provider sign out, resolved once every provider completed or the timeout elapsed.
+ */
+public class SignOutResult {
+    public static final String FIREBASE = "firebase";
+
+    private final PluginCall call;
+    private final Set<String> pending = new LinkedHashSet<>();
+    private final JSObject providers = new JSObject();
+    private final long startedAt = SignInMetrics.now();
+    private boolean completed = false;
+
+    public SignOutResult(PluginCall call) {
+        this.call = call;
+    }
+
+    /**
+     * Mark the provider as signing out, it times out if it did not complete when the result is resolved.
+     */
+    public synchronized void expect(String providerId) {
+        this.pending.add(providerId);
+    }
+
+    /**
+     * @param failure The sign out failure, or null if it succeed.
+     * @param startedAt The sign out start, as returned by {@link SignInMetrics#now()}.
+     */
+    public synchronized void put(String providerId, Exception failure, long startedAt) {
+        if (this.completed) {
+            return;
+        }
+
+        JSObject jsProvider = new JSObject();
+        jsProvider.put("status", failure == null ? "success" : "failure");
+        jsProvider.put("duration", SignInMetrics.now() - startedAt);
+        if (failure != null) {
+            jsProvider.put("error", failure.getMessage());
+        }
+
+        this.pending.remove(providerId);
+        this.providers.put(providerId, jsProvider);
+    }
+
+    /**
+     * Resolve the call, once, with the providers still pending as timed out.
+     */
+    public void complete() {
+        JSObject jsResult = new JSObject();
+
+        synchronized (this) {
+            if (this.completed) {
+                return;
+            }
+            this.completed = true;
+
+            for (String providerId : this.pending) {
+                JSObject jsProvider = new JSObject();
+                jsProvider.put("status", "timeout");
+                jsProvider.put("duration", SignInMetrics.now() - this.startedAt);
+                this.providers.put(providerId, jsProvider);
+            }
+
+            jsResult.put("providers", this.providers);
+        }
+
+        this.call.success(jsResult);
+    }
+}
@@ -0,0 +1,230 @@
+package com.baumblatt.capacitor.firebase.auth;
+
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renews the provider tokens shortly before they expire, so a sign in almost always finds a valid token.
+ *
+ * Every token stored in the {@link CredentialCache} by a registered provider schedules its own refresh,
+ * with a random jitter to avoid refreshing all providers at once. Failures are retried with exponential
+ * backoff, and nothing runs while the app is in background. The renewed token is stored by the scheduler,
+ * so a refresh still running when the refreshes are cancelled is dropped.
+ */
+public class TokenRefreshScheduler implements CredentialCache.Listener {
+    private static final String REFRESH_TAG = "TokenRefreshScheduler";
+    private static final long MAX_JITTER_MILLIS = 30 * 1000;
+    private static final long MIN_BACKOFF_MILLIS = 5 * 1000;
+    private static final long MAX_BACKOFF_MILLIS = 10 * 60 * 1000;
+
+    /**
+     * A provider handler able to renew its token without user interaction.
+     */
+    public interface Refreshable {
+        /**
+         * Renew the provider token, passing the new one to the callback.
+         */
+        void refresh(Callback callback);
+    }
+
+    public interface Callback {
+        /**
+         * @param token The renewed provider token.
+         * @param expiresAt The token expiry, in milliseconds since epoch.
+         */
+        void onRefreshed(String token, long expiresAt);
+
+        void onFailure(Exception e);
+    }
+
+    private final CredentialCache cache;
+    private final Map<String, Refreshable> refreshables = new HashMap<>();
+    private final Map<String, ScheduledFuture<?>> scheduled = new HashMap<>();
+    private final Map<String, Integer> failures = new HashMap<>();
+    private final Set<String> tracked = new HashSet<>();
+    private final Random random = new Random();
+
+    private ScheduledExecutorService executor;
+    private boolean enabled = false;
+    private boolean paused = false;
+    private int generation = 0;
+    private long leadTimeMillis = 5 * 60 * 1000;
+
+    public TokenRefreshScheduler(CredentialCache cache) {
+        this.cache = cache;
+        this.cache.setListener(this);
+    }
+
+    public synchronized void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public synchronized void setLeadTime(long leadTimeMillis) {
+        this.leadTimeMillis = leadTimeMillis;
+    }
+
+    public synchronized void register(String providerId, Refreshable refreshable) {
+        this.refreshables.put(providerId, refreshable);
+    }
+
+    @Override
+    public synchronized void onPut(String providerId, CredentialCache.Entry entry) {
+        if (!this.enabled || !this.refreshables.containsKey(providerId)) {
+            return;
+        }
+
+        this.tracked.add(providerId);
+        this.failures.remove(providerId);
+
+        long delay = entry.getExpiresAt() - System.currentTimeMillis() - this.leadTimeMillis - this.jitter();
+        this.schedule(providerId, Math.max(delay, 0));
+    }
+
+    /**
+     * Stop the scheduled refreshes, keeping track of the providers to refresh on resume.
+     */
+    public synchronized void pause() {
+        this.paused = true;
+        this.cancelScheduled();
+    }
+
+    /**
+     * Reschedule the tracked providers, refreshing right away the ones expired while paused.
+     */
+    public synchronized void resume() {
+        this.paused = false;
+
+        for (String providerId : this.tracked) {
+            CredentialCache.Entry entry = this.cache.get(providerId);
+            long delay = entry != null ? entry.getExpiresAt() - System.currentTimeMillis() - this.leadTimeMillis : 0;
+            this.schedule(providerId, Math.max(delay, 0) + this.jitter());
+        }
+    }
+
+    /**
+     * Stop refreshing every provider, e.g. on sign out.
+     */
+    public synchronized void cancelAll() {
+        this.generation++;
+        this.cancelScheduled();
+        this.tracked.clear();
+        this.failures.clear();
+    }
+
+    /**
+     * Stop refreshing for good and release the refresh thread, on the plugin destroy.
+     */
+    public synchronized void shutdown() {
+        this.enabled = false;
+        this.cancelAll();
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+            this.executor = null;
+        }
+    }
+
+    private void schedule(final String providerId, long delayMillis) {
+        ScheduledFuture<?> previous = this.scheduled.remove(providerId);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+
+        if (this.paused) {
+            return;
+        }
+
+        Log.d(REFRESH_TAG, String.format("Scheduling %s token refresh in %d ms.", providerId, delayMillis));
+        this.scheduled.put(providerId, this.getExecutor().schedule(new Runnable() {
+            @Override
+            public void run() {
+                refresh(providerId);
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS));
+    }
+
+    private void refresh(final String providerId) {
+        final Refreshable refreshable;
+        final int generation;
+        synchronized (this) {
+            this.scheduled.remove(providerId);
+            refreshable = this.refreshables.get(providerId);
+            if (this.paused || refreshable == null || !this.tracked.contains(providerId)) {
+                return;
+            }
+            generation = this.generation;
+        }
+
+        Log.d(REFRESH_TAG, String.format("Refreshing %s token.", providerId));
+        refreshable.refresh(new Callback() {
+            @Override
+            public void onRefreshed(String token, long expiresAt) {
+                onRefreshSuccess(providerId, generation, token, expiresAt);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.w(REFRESH_TAG, String.format("%s token refresh failure.", providerId), e);
+                onRefreshFailure(providerId, generation);
+            }
+        });
+    }
+
+    private synchronized void onRefreshSuccess(String providerId, int generation, String token, long expiresAt) {
+        if (generation != this.generation) {
+            Log.d(REFRESH_TAG, String.format("%s token refresh cancelled, dropping the token.", providerId));
+            return;
+        }
+
+        Log.d(REFRESH_TAG, String.format("%s token refreshed.", providerId));
+        this.cache.put(providerId, token, expiresAt);
+    }
+
+    private synchronized void onRefreshFailure(String providerId, int generation) {
+        if (generation != this.generation || !this.tracked.contains(providerId)) {
+            return;
+        }
+
+        Integer previous = this.failures.get(providerId);
+        int attempts = previous != null ? previous + 1 : 1;
+        this.failures.put(providerId, attempts);
+
+        long backoff = Math.min(MIN_BACKOFF_MILLIS << Math.min(attempts - 1, 16), MAX_BACKOFF_MILLIS);
+        this.schedule(providerId, backoff + this.jitter());
+    }
+
+    private void cancelScheduled() {
+        for (ScheduledFuture<?> future : this.scheduled.values()) {
+            future.cancel(false);
+        }
+        this.scheduled.clear();
+    }
+
+    private long jitter() {
+        return (long) (this.random.nextDouble() * MAX_JITTER_MILLIS);
+    }
+
+    private ScheduledExecutorService getExecutor() {
+        if (this.executor == null) {
+            this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, REFRESH_TAG);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        return this.executor;
+    }
+}
@@ -0,0 +1,50 @@
+package com.baumblatt.capacitor.firebase.auth.handlers;
+
+import android.util.Log;
+
+import com.google.firebase.auth.AuthCredential;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reflective access to the parts of the OAuth credentials not exposed by {@link AuthCredential},
+ * like the access token and secret. The methods are looked up once per credential class.
+ */
+public final class CredentialParts {
+    private static final String PARTS_TAG = "CredentialParts";
+
+    private static final Map<Class<?>, Map<String, Method>> methods = new ConcurrentHashMap<>();
+
+    private CredentialParts() {
+    }
+
+    /**
+     * @return The value returned by the given credential method, or an empty string if there is no such method.
+     */
+    public static String get(AuthCredential credential, String methodName) {
+        try {
+            return (String) getMethod(credential.getClass(), methodName).invoke(credential);
+        } catch (Exception e) {
+            Log.d(PARTS_TAG, String.format("Fail to get %s from credentials.", methodName));
+            return "";
+        }
+    }
+
+    private static Method getMethod(Class<?> credentialClass, String methodName) throws NoSuchMethodException {
+        Map<String, Method> classMethods = methods.get(credentialClass);
+        if (classMethods == null) {
+            classMethods = new ConcurrentHashMap<>();
+            methods.put(credentialClass, classMethods);
+        }
+
+        Method method = classMethods.get(methodName);
+        if (method == null) {
+            method = credentialClass.getMethod(methodName);
+            classMethods.put(methodName, method);
+        }
+
+        return method;
+    }
+}
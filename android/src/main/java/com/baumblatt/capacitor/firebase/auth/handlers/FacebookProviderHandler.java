@@ -1,45 +1,60 @@
 package com.baumblatt.capacitor.firebase.auth.handlers;
 
+import android.app.Activity;
 import android.content.Intent;
 import android.util.Log;
 
+import com.baumblatt.capacitor.firebase.auth.AuthTraceBuffer;
 import com.baumblatt.capacitor.firebase.auth.CapacitorFirebaseAuth;
+import com.baumblatt.capacitor.firebase.auth.ResultFields;
+import com.baumblatt.capacitor.firebase.auth.TokenRefreshScheduler;
 import com.facebook.AccessToken;
 import com.facebook.CallbackManager;
 import com.facebook.FacebookCallback;
 import com.facebook.FacebookException;
 import com.facebook.login.LoginManager;
 import com.facebook.login.LoginResult;
-import com.facebook.login.widget.LoginButton;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.PluginCall;
 import com.google.android.gms.common.util.ArrayUtils;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.auth.AuthCredential;
 import com.google.firebase.auth.FacebookAuthProvider;
 
-import static com.baumblatt.capacitor.firebase.auth.CapacitorFirebaseAuth.CONFIG_KEY_PREFIX;
+import java.util.Arrays;
 
-public class FacebookProviderHandler implements ProviderHandler {
+public class FacebookProviderHandler implements ProviderHandler, TokenRefreshScheduler.Refreshable {
     private static final String FACEBOOK_TAG = "FacebookProviderHandler";
     public static final int RC_FACEBOOK_LOGIN = 0xface;
 
     private CapacitorFirebaseAuth plugin;
     private CallbackManager mCallbackManager;
-    private LoginButton loginButton;
+    private FacebookCallback<LoginResult> loginCallback;
+    private String[] permissions;
+    private ResultFiller resultFiller;
 
 
     @Override
     public void init(final CapacitorFirebaseAuth plugin) {
         this.plugin = plugin;
+        this.resultFiller = ResultParts.cachedToken(plugin.getCredentialCache(), FacebookAuthProvider.PROVIDER_ID, new ResultFiller() {
+            @Override
+            public void fillResult(AuthCredential credential, JSObject jsResult, ResultFields fields) {
+                String token = getToken();
+                if (token != null) {
+                    jsResult.put("idToken", token);
+                }
+            }
+        });
 
         try {
-            this.loginButton = new LoginButton(this.plugin.getContext());
-            String[] permissions = this.plugin.getConfig().getArray(CONFIG_KEY_PREFIX + "permissions.facebook", new String[0]);
-            this.loginButton.setPermissions(ArrayUtils.concat(new String[]{"email", "public_profile"}, permissions));
+            String[] permissions = this.plugin.getConfig().getFacebookPermissions();
+            this.permissions = ArrayUtils.concat(new String[]{"email", "public_profile"}, permissions);
 
-            this.mCallbackManager = CallbackManager.Factory.create();
+            this.mCallbackManager = this.plugin.getBackends().createCallbackManager();
 
-            this.loginButton.registerCallback(mCallbackManager, new FacebookCallback<LoginResult>() {
+            this.loginCallback = new FacebookCallback<LoginResult>() {
                 @Override
                 public void onSuccess(LoginResult loginResult) {
                     Log.d(FACEBOOK_TAG, "facebook:onSuccess:" + loginResult);
@@ -49,37 +64,86 @@ public class FacebookProviderHandler implements ProviderHandler {
                 @Override
                 public void onCancel() {
                     Log.d(FACEBOOK_TAG, "facebook:onCancel");
-                    plugin.handleFailure("Facebook Sign In cancel.", null);
+                    plugin.handleCancel(FacebookAuthProvider.PROVIDER_ID, "Facebook Sign In cancel.", null);
                 }
 
                 @Override
                 public void onError(FacebookException error) {
-
-
-
                     Log.d(FACEBOOK_TAG, "facebook:onError", error);
-                    plugin.handleFailure("Facebook Sign In failure.", error);
+                    plugin.handleFailure(FacebookAuthProvider.PROVIDER_ID, "Facebook Sign In failure.", error);
                 }
-            });
+            };
+
+            // the callback is kept by the callback manager of the handler, not by the login manager singleton
+            LoginManager.getInstance().registerCallback(this.mCallbackManager, this.loginCallback);
 
         } catch (FacebookException error) {
             Log.w(FACEBOOK_TAG, "Facebook initialization error, review your configs", error);
         }
+
+        this.plugin.getTokenRefreshScheduler().register(FacebookAuthProvider.PROVIDER_ID, this);
+    }
+
+    @Override
+    public void attach(Activity activity) {
+        // the login manager takes the activity when the sign in starts, so nothing is bound to the activity
+    }
+
+    @Override
+    public void detach() {
+        // there is nothing to do here
     }
 
     private void handleFacebookAccessToken(AccessToken token) {
         AuthCredential credential = FacebookAuthProvider.getCredential(token.getToken());
-        this.plugin.handleAuthCredentials(credential);
+        this.plugin.handleAuthCredentials(FacebookAuthProvider.PROVIDER_ID, credential);
     }
 
     @Override
     public void signIn(PluginCall call) {
-        this.loginButton.performClick();
+        Activity activity = this.plugin.getActivity();
+        if (this.mCallbackManager == null || activity == null) {
+            plugin.handleFailure(FacebookAuthProvider.PROVIDER_ID, "Facebook Sign In failure, there is no activity.", null);
+            return;
+        }
+
+        // the login manager starts the login activity from any thread, unlike a login button view
+        this.plugin.getTraces().record(FacebookAuthProvider.PROVIDER_ID, call.getCallbackId(), AuthTraceBuffer.Event.INTENT_LAUNCH);
+        LoginManager.getInstance().logIn(activity, Arrays.asList(this.permissions));
+    }
+
+    @Override
+    public void silentSignIn(PluginCall call, final SilentSignInCallback callback) {
+        if (this.isAuthenticated()) {
+            callback.onSuccess(null);
+            return;
+        }
+
+        AccessToken accessToken = AccessToken.getCurrentAccessToken();
+        if (accessToken == null || accessToken.isDataAccessExpired()) {
+            callback.onFailure();
+            return;
+        }
+
+        this.refresh(new TokenRefreshScheduler.Callback() {
+            @Override
+            public void onRefreshed(String token, long expiresAt) {
+                plugin.getCredentialCache().put(FacebookAuthProvider.PROVIDER_ID, token, expiresAt);
+                callback.onSuccess(FacebookAuthProvider.getCredential(token));
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.d(FACEBOOK_TAG, "facebook:silentSignIn failure", e);
+                callback.onFailure();
+            }
+        });
     }
 
     @Override
-    public void signOut() {
+    public Task<Void> signOut() {
         LoginManager.getInstance().logOut();
+        return Tasks.forResult(null);
     }
 
     @Override
@@ -96,15 +160,46 @@ public class FacebookProviderHandler implements ProviderHandler {
 
     @Override
     public boolean isAuthenticated() {
-        AccessToken accessToken = AccessToken.getCurrentAccessToken();
-        return accessToken != null && !accessToken.isExpired();
+        return this.getToken() != null;
+    }
+
+    @Override
+    public void fillResult(AuthCredential credential, JSObject jsResult, ResultFields fields) {
+        this.resultFiller.fillResult(credential, jsResult, fields);
     }
 
     @Override
-    public void fillResult(AuthCredential credential, JSObject jsResult) {
+    public void refresh(final TokenRefreshScheduler.Callback callback) {
+        AccessToken.refreshCurrentAccessTokenAsync(new AccessToken.AccessTokenRefreshCallback() {
+            @Override
+            public void OnTokenRefreshed(AccessToken accessToken) {
+                if (accessToken == null || accessToken.isExpired()) {
+                    callback.onFailure(null);
+                    return;
+                }
+
+                callback.onRefreshed(accessToken.getToken(), accessToken.getExpires().getTime());
+            }
+
+            @Override
+            public void OnTokenRefreshFailed(FacebookException exception) {
+                callback.onFailure(exception);
+            }
+        });
+    }
+
+    private String getToken() {
+        String token = this.plugin.getCredentialCache().getToken(FacebookAuthProvider.PROVIDER_ID);
+        if (token != null) {
+            return token;
+        }
+
         AccessToken accessToken = AccessToken.getCurrentAccessToken();
-        if(accessToken != null && !accessToken.isExpired()) {
-            jsResult.put("idToken", accessToken.getToken());
+        if (accessToken == null || accessToken.isExpired()) {
+            return null;
         }
+
+        this.plugin.getCredentialCache().put(FacebookAuthProvider.PROVIDER_ID, accessToken.getToken(), accessToken.getExpires().getTime());
+        return accessToken.getToken();
     }
 }
@@ -1,22 +1,24 @@
 package com.baumblatt.capacitor.firebase.auth.handlers;
 
+import android.app.Activity;
 import android.content.Intent;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 
+import com.baumblatt.capacitor.firebase.auth.AuthTraceBuffer;
 import com.baumblatt.capacitor.firebase.auth.CapacitorFirebaseAuth;
 import com.baumblatt.capacitor.firebase.auth.R;
+import com.baumblatt.capacitor.firebase.auth.ResultFields;
+import com.baumblatt.capacitor.firebase.auth.TokenRefreshScheduler;
 import com.getcapacitor.Config;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.PluginCall;
-import com.google.android.gms.auth.api.signin.GoogleSignIn;
 import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
 import com.google.android.gms.auth.api.signin.GoogleSignInClient;
 import com.google.android.gms.auth.api.signin.GoogleSignInOptions;
 import com.google.android.gms.auth.api.signin.GoogleSignInStatusCodes;
 import com.google.android.gms.common.ConnectionResult;
-import com.google.android.gms.common.GoogleApiAvailability;
 import com.google.android.gms.common.api.ApiException;
 import com.google.android.gms.common.api.Scope;
 import com.google.android.gms.tasks.OnCompleteListener;
@@ -24,30 +26,30 @@ import com.google.android.gms.tasks.Task;
 import com.google.firebase.auth.AuthCredential;
 import com.google.firebase.auth.GoogleAuthProvider;
 
-import com.auth0.android.jwt.JWT;
-
-import static com.baumblatt.capacitor.firebase.auth.CapacitorFirebaseAuth.CONFIG_KEY_PREFIX;
-
-public class GoogleProviderHandler implements ProviderHandler {
+public class GoogleProviderHandler implements ProviderHandler, TokenRefreshScheduler.Refreshable {
     public static final int RC_GOOGLE_SIGN_IN = 9001;
     private static final String GOOGLE_TAG = "GoogleProviderHandler";
+    private static final int AVAILABILITY_UNKNOWN = -1;
 
     private CapacitorFirebaseAuth plugin;
+    private GoogleSignInOptions gso;
     private GoogleSignInClient mGoogleSignInClient;
 
+    private volatile int availability = AVAILABILITY_UNKNOWN;
+    private volatile Intent signInIntent;
+    private ResultFiller resultFiller;
+
     @Override
     public void init(CapacitorFirebaseAuth plugin) {
         this.plugin = plugin;
+        this.resultFiller = ResultParts.cachedToken(plugin.getCredentialCache(), GoogleAuthProvider.PROVIDER_ID, new ResultFiller() {
+            @Override
+            public void fillResult(AuthCredential credential, JSObject jsResult, ResultFields fields) {
+                fillFromLastAccount(jsResult);
+            }
+        });
 
-        String[] permissions = this.plugin.getConfig().getArray(CONFIG_KEY_PREFIX + "permissions.google", new String[0]);
-
-        GoogleApiAvailability googleAPI = GoogleApiAvailability.getInstance();
-        int result = googleAPI.isGooglePlayServicesAvailable(this.plugin.getContext());
-        if (result == ConnectionResult.SUCCESS) {
-            Log.d(GOOGLE_TAG, "Google Api is Available.");
-        } else {
-            Log.w(GOOGLE_TAG, "Google Api is not Available.");
-        }
+        String[] permissions = this.plugin.getConfig().getGooglePermissions();
 
         GoogleSignInOptions.Builder gsBuilder = new GoogleSignInOptions.Builder(GoogleSignInOptions.DEFAULT_SIGN_IN)
                 .requestIdToken(this.plugin.getContext().getString(R.string.default_web_client_id))
@@ -61,21 +63,87 @@ public class GoogleProviderHandler implements ProviderHandler {
             }
         }
 
-        String hostedDomain = this.plugin.getConfig().getString(CONFIG_KEY_PREFIX + "properties.google.hostedDomain");
+        String hostedDomain = this.plugin.getConfig().getGoogleHostedDomain();
 
         if (hostedDomain != null) {
           gsBuilder.setHostedDomain(hostedDomain);
         }
 
-        GoogleSignInOptions gso = gsBuilder.build();
-        this.mGoogleSignInClient = GoogleSignIn.getClient(this.plugin.getActivity(), gso);
+        this.gso = gsBuilder.build();
+        this.plugin.getTokenRefreshScheduler().register(GoogleAuthProvider.PROVIDER_ID, this);
+    }
+
+    @Override
+    public void attach(Activity activity) {
+        this.mGoogleSignInClient = this.plugin.getBackends().getGoogleSignInClient(activity, this.gso);
+        // warmed up once the client is bound, an intent built on init would be for the application client
+        this.warmUp();
+    }
+
+    @Override
+    public void detach() {
+        this.mGoogleSignInClient = null;
+    }
+
+    /**
+     * @return The client bound to the activity, or to the application while there is no activity.
+     */
+    private GoogleSignInClient getClient() {
+        GoogleSignInClient client = this.mGoogleSignInClient;
+        if (client == null) {
+            client = this.plugin.getBackends().getGoogleSignInClient(this.plugin.getContext().getApplicationContext(), this.gso);
+        }
+
+        return client;
+    }
+
+    /**
+     * Probe the Google Play Services availability and build the next sign in intent off the main thread,
+     * so the tap to picker path does no setup work. Runs again whenever the client or the account changes.
+     */
+    private void warmUp() {
+        this.signInIntent = null;
+        this.plugin.getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                int result = plugin.getBackends().isGooglePlayServicesAvailable(plugin.getContext());
+                availability = result;
+
+                if (result == ConnectionResult.SUCCESS) {
+                    Log.d(GOOGLE_TAG, "Google Api is Available.");
+                    signInIntent = getClient().getSignInIntent();
+                } else {
+                    Log.w(GOOGLE_TAG, "Google Api is not Available.");
+                }
+            }
+        });
+    }
+
+    private boolean isUnavailable() {
+        return this.availability != AVAILABILITY_UNKNOWN && this.availability != ConnectionResult.SUCCESS;
     }
 
     @Override
     public void signIn(PluginCall call) {
         Log.d(GOOGLE_TAG, "Google SignIn starts..");
-        Intent intent = this.mGoogleSignInClient.getSignInIntent();
+        if (this.isUnavailable()) {
+            Log.w(GOOGLE_TAG, "Google Play Services is not available, rejecting the sign in.");
+            this.plugin.handleFailure(GoogleAuthProvider.PROVIDER_ID, "Google Play Services is not available.", null);
+            // probe again, the user may update or enable the services before the next sign in
+            this.warmUp();
+            return;
+        }
+
+        Intent intent = this.signInIntent;
+        this.signInIntent = null;
+        if (intent == null) {
+            Log.d(GOOGLE_TAG, "Google sign in intent not warmed up yet, building it.");
+            intent = this.getClient().getSignInIntent();
+        }
+
+        this.plugin.getTraces().record(GoogleAuthProvider.PROVIDER_ID, call.getCallbackId(), AuthTraceBuffer.Event.INTENT_LAUNCH);
         this.plugin.startActivityForResult(call, intent, RC_GOOGLE_SIGN_IN);
+        this.warmUp();
     }
 
     @Override
@@ -88,29 +156,37 @@ public class GoogleProviderHandler implements ProviderHandler {
         Log.d(GOOGLE_TAG, "Google SignIn activity result.");
 
         try {
-            Task<GoogleSignInAccount> task = GoogleSignIn.getSignedInAccountFromIntent(data);
+            Task<GoogleSignInAccount> task = this.plugin.getBackends().getSignedInAccountFromIntent(data);
             // Google Sign In was successful, authenticate with Firebase
             GoogleSignInAccount account = task.getResult(ApiException.class);
 
             if (account != null) {
                 Log.d(GOOGLE_TAG, "Google Sign In succeed.");
                 AuthCredential credential = GoogleAuthProvider.getCredential(account.getIdToken(), null);
-                this.plugin.handleAuthCredentials(credential);
+                this.plugin.handleAuthCredentials(GoogleAuthProvider.PROVIDER_ID, credential);
                 return;
             }
         } catch (ApiException exception) {
             // Google Sign In failed, update UI appropriately
             Log.w(GOOGLE_TAG, GoogleSignInStatusCodes.getStatusCodeString(exception.getStatusCode()), exception);
-            plugin.handleFailure("Google Sign In failure.", exception);
+            if (exception.getStatusCode() == GoogleSignInStatusCodes.SIGN_IN_CANCELLED) {
+                plugin.handleCancel(GoogleAuthProvider.PROVIDER_ID, "Google Sign In failure.", exception);
+            } else {
+                plugin.handleFailure(GoogleAuthProvider.PROVIDER_ID, "Google Sign In failure.", exception);
+            }
             return;
         }
 
-        plugin.handleFailure("Google Sign In failure.", null);
+        plugin.handleFailure(GoogleAuthProvider.PROVIDER_ID, "Google Sign In failure.", null);
     }
 
     @Override
     public boolean isAuthenticated() {
-        GoogleSignInAccount account = GoogleSignIn.getLastSignedInAccount(this.plugin.getContext());
+        if (this.plugin.getCredentialCache().get(GoogleAuthProvider.PROVIDER_ID) != null) {
+            return true;
+        }
+
+        GoogleSignInAccount account = this.plugin.getBackends().getLastSignedInAccount(this.plugin.getContext());
 
         if (account != null) {
             String token = account.getIdToken();
@@ -120,48 +196,106 @@ public class GoogleProviderHandler implements ProviderHandler {
 
                 return false;
             } else {
-                if (new JWT(token).isExpired(10)) {
-                    try {
-                        Task<GoogleSignInAccount> task = this.mGoogleSignInClient.silentSignIn();
-                        if (task.isSuccessful()) {
-                            Log.d(GOOGLE_TAG, "Google silentSignIn isSuccessful.");
-                            // There's immediate result available.
-                            account = task.getResult(ApiException.class);
-                            Log.d(GOOGLE_TAG, "Google silentSignIn succeed.");
-                            return true;
-                        } else {
-                            // There's no immediate result ready
-                            return false;
-                        }
-                    } catch (ApiException exception) {
-                        Log.w(GOOGLE_TAG, String.format("Google silentSignIn failure: %s", exception.getLocalizedMessage()));
-
-                        return false;
-                    }
-                }
+                return this.cacheIdToken(token);
             }
         }
 
+        return false;
+    }
+
+    @Override
+    public void silentSignIn(PluginCall call, final SilentSignInCallback callback) {
+        if (this.isAuthenticated()) {
+            callback.onSuccess(null);
+            return;
+        }
 
-        return account != null;
+        if (this.isUnavailable() || this.plugin.getBackends().getLastSignedInAccount(this.plugin.getContext()) == null) {
+            // there is no previous account to refresh, or no services to refresh it with
+            callback.onFailure();
+            return;
+        }
+
+        this.getClient().silentSignIn().addOnCompleteListener(this.plugin.getExecutor(), new OnCompleteListener<GoogleSignInAccount>() {
+            @Override
+            public void onComplete(@NonNull Task<GoogleSignInAccount> task) {
+                GoogleSignInAccount account = task.isSuccessful() ? task.getResult() : null;
+
+                if (account != null && account.getIdToken() != null) {
+                    Log.d(GOOGLE_TAG, "Google silentSignIn succeed.");
+                    callback.onSuccess(GoogleAuthProvider.getCredential(account.getIdToken(), null));
+                } else {
+                    Log.w(GOOGLE_TAG, "Google silentSignIn failure.", task.getException());
+                    callback.onFailure();
+                }
+            }
+        });
     }
 
     @Override
-    public void fillResult(AuthCredential credential, JSObject jsResult) {
-        GoogleSignInAccount account = GoogleSignIn.getLastSignedInAccount(this.plugin.getContext());
+    public void fillResult(AuthCredential credential, JSObject jsResult, ResultFields fields) {
+        this.resultFiller.fillResult(credential, jsResult, fields);
+    }
+
+    /**
+     * The id token of the last signed in account, when it is not in the credential cache.
+     */
+    private void fillFromLastAccount(JSObject jsResult) {
+        GoogleSignInAccount account = this.plugin.getBackends().getLastSignedInAccount(this.plugin.getContext());
         if (account != null)  {
             jsResult.put("idToken", account.getIdToken());
+            if (account.getIdToken() != null) {
+                this.cacheIdToken(account.getIdToken());
+            }
         } else {
             Log.w(GOOGLE_TAG, "Ops, there was not last signed in account on google api.");
         }
     }
 
     @Override
-    public void signOut() {
-        this.mGoogleSignInClient.signOut().addOnCompleteListener(this.plugin.getActivity(), new OnCompleteListener<Void>() {
+    public void refresh(final TokenRefreshScheduler.Callback callback) {
+        this.getClient().silentSignIn().addOnCompleteListener(this.plugin.getExecutor(), new OnCompleteListener<GoogleSignInAccount>() {
+            @Override
+            public void onComplete(@NonNull Task<GoogleSignInAccount> task) {
+                GoogleSignInAccount account = task.isSuccessful() ? task.getResult() : null;
+                long expiresAt = account != null && account.getIdToken() != null ? IdTokens.getExpiresAt(account.getIdToken()) : 0;
+
+                if (expiresAt > 0) {
+                    callback.onRefreshed(account.getIdToken(), expiresAt);
+                } else {
+                    callback.onFailure(task.getException());
+                }
+            }
+        });
+    }
+
+    /**
+     * Decode the token expiry once and keep it in the credential cache while it is valid.
+     * @return true if the token is not expired.
+     */
+    private boolean cacheIdToken(String token) {
+        long expiresAt = IdTokens.getExpiresAt(token);
+        if (expiresAt < 0) {
+            return false;
+        }
+
+        if (expiresAt > 0) {
+            this.plugin.getCredentialCache().put(GoogleAuthProvider.PROVIDER_ID, token, expiresAt);
+        }
+        return true;
+    }
+
+    @Override
+    public Task<Void> signOut() {
+        return this.getClient().signOut().addOnCompleteListener(this.plugin.getExecutor(), new OnCompleteListener<Void>() {
             @Override
             public void onComplete(@NonNull Task<Void> task) {
-                Log.i(GOOGLE_TAG, "Google Sign Out succeed.");
+                if (task.isSuccessful()) {
+                    Log.i(GOOGLE_TAG, "Google Sign Out succeed.");
+                } else {
+                    Log.w(GOOGLE_TAG, "Google Sign Out failure.", task.getException());
+                }
+                warmUp();
             }
         });
     }
@@ -0,0 +1,25 @@
+package com.baumblatt.capacitor.firebase.auth.handlers;
+
+import com.auth0.android.jwt.JWT;
+
+/**
+ * Decodes the Google id token expiry, once per token, for the credential cache and the token refresh.
+ */
+public final class IdTokens {
+    private static final long EXPIRY_LEEWAY_SECONDS = 10;
+
+    private IdTokens() {
+    }
+
+    /**
+     * @return The token expiry in milliseconds, 0 if the token has no expiry, or -1 if it is expired.
+     */
+    public static long getExpiresAt(String idToken) {
+        JWT jwt = new JWT(idToken);
+        if (jwt.isExpired(EXPIRY_LEEWAY_SECONDS)) {
+            return -1;
+        }
+
+        return jwt.getExpiresAt() != null ? jwt.getExpiresAt().getTime() : 0;
+    }
+}
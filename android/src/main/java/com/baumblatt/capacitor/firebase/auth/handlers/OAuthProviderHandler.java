@@ -0,0 +1,222 @@
+package com.baumblatt.capacitor.firebase.auth.handlers;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.baumblatt.capacitor.firebase.auth.AuthTraceBuffer;
+import com.baumblatt.capacitor.firebase.auth.CapacitorFirebaseAuth;
+import com.baumblatt.capacitor.firebase.auth.ResultFields;
+import com.baumblatt.capacitor.firebase.auth.SignInMetrics;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+import com.google.android.gms.tasks.OnCompleteListener;
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.AuthCredential;
+import com.google.firebase.auth.AuthResult;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.auth.OAuthProvider;
+import com.google.firebase.auth.UserInfo;
+
+/**
+ * Handler of the providers signing in through the Firebase generic OAuth flow, like Microsoft, GitHub or Yahoo.
+ *
+ * The flow runs in a Firebase managed activity, so there is no activity result to handle.
+ */
+public class OAuthProviderHandler implements ProviderHandler, OnSuccessListener<AuthResult>, OnFailureListener {
+    private static final String OAUTH_TAG = "OAuthProviderHandler";
+
+    protected final String providerId;
+    private final String name;
+
+    protected CapacitorFirebaseAuth plugin;
+    private OAuthProvider provider;
+    private String providerLanguageCode;
+
+    public OAuthProviderHandler(String providerId) {
+        this(providerId, providerId);
+    }
+
+    /**
+     * @param providerId The Firebase provider id.
+     * @param name The provider name, used on the failure messages.
+     */
+    protected OAuthProviderHandler(String providerId, String name) {
+        this.providerId = providerId;
+        this.name = name;
+    }
+
+    @Override
+    public void init(CapacitorFirebaseAuth plugin) {
+        this.plugin = plugin;
+
+        // built ahead, so the first sign in only starts the flow
+        this.getProvider(this.plugin.getFirebaseAuth());
+    }
+
+    @Override
+    public void attach(Activity activity) {
+        // the activity is only used when the sign in starts
+    }
+
+    @Override
+    public void detach() {
+        // there is nothing to do here
+    }
+
+    /**
+     * Hook to add the provider specific scopes and custom parameters.
+     */
+    protected void configure(OAuthProvider.Builder provider) {
+        // there is nothing to do here
+    }
+
+    /**
+     * Drop the built provider, so the next sign in builds it again, e.g. once the scopes added on
+     * {@link #configure(OAuthProvider.Builder)} changed.
+     */
+    protected synchronized void invalidateProvider() {
+        this.provider = null;
+    }
+
+    /**
+     * @return The provider built for the language of the FirebaseAuth instance, reused until it changes.
+     */
+    private synchronized OAuthProvider getProvider(FirebaseAuth firebaseAuth) {
+        String languageCode = firebaseAuth.getLanguageCode() != null ? firebaseAuth.getLanguageCode() : this.plugin.getConfig().getLanguageCode();
+
+        if (this.provider == null || !languageCode.equals(this.providerLanguageCode)) {
+            OAuthProvider.Builder builder = OAuthProvider.newBuilder(this.providerId);
+            builder.addCustomParameter("lang", languageCode);
+            this.configure(builder);
+
+            this.provider = builder.build();
+            this.providerLanguageCode = languageCode;
+        }
+
+        return this.provider;
+    }
+
+    @Override
+    public void signIn(PluginCall call) {
+        Log.d(OAUTH_TAG, String.format("%s SignIn starts..", this.name));
+        // the flow signs in the FirebaseAuth instance of the call app and tenant
+        FirebaseAuth firebaseAuth = this.plugin.getFirebaseAuth(call);
+        FirebaseUser user = firebaseAuth.getCurrentUser();
+        this.plugin.getTraces().record(this.providerId, call.getCallbackId(), AuthTraceBuffer.Event.INTENT_LAUNCH);
+        // the credential comes with the flow task, there is no activity result to start the phase on
+        this.plugin.getSignInMetrics().begin(this.providerId, SignInMetrics.Phase.CREDENTIAL);
+
+        if ("link".equals(call.getMethodName()) && user != null) {
+            // linking must not switch the current user, so the Firebase managed flow links instead of signing in
+            user.startActivityForLinkWithProvider(this.plugin.getActivity(), this.getProvider(firebaseAuth))
+                    .addOnSuccessListener(this)
+                    .addOnFailureListener(this);
+            return;
+        }
+
+        firebaseAuth.startActivityForSignInWithProvider(this.plugin.getActivity(), this.getProvider(firebaseAuth))
+                .addOnSuccessListener(this)
+                .addOnFailureListener(this);
+    }
+
+    @Override
+    public void silentSignIn(PluginCall call, final SilentSignInCallback callback) {
+        FirebaseAuth firebaseAuth = this.plugin.getFirebaseAuth(call);
+        if (this.isAuthenticated(firebaseAuth)) {
+            callback.onSuccess(null);
+            return;
+        }
+
+        AuthCredential recovered = this.plugin.takeRecoveredCredential(this.providerId);
+        if (recovered != null) {
+            callback.onSuccess(recovered);
+            return;
+        }
+
+        // the plugin resolves the calls in flight with the pending result, or keeps it for this sign in
+        Task<AuthResult> pendingResultTask = this.plugin.recoverPendingAuthResult(firebaseAuth);
+        if (pendingResultTask == null) {
+            callback.onFailure();
+            return;
+        }
+        this.plugin.getSignInMetrics().begin(this.providerId, SignInMetrics.Phase.CREDENTIAL);
+
+        pendingResultTask.addOnCompleteListener(this.plugin.getExecutor(), new OnCompleteListener<AuthResult>() {
+            @Override
+            public void onComplete(@NonNull Task<AuthResult> task) {
+                AuthCredential credential = plugin.takeRecoveredCredential(providerId);
+                if (credential != null) {
+                    callback.onSuccess(credential);
+                } else {
+                    Log.d(OAUTH_TAG, String.format("No pending %s result for the sign in.", name));
+                    callback.onFailure();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onSuccess(AuthResult authResult) {
+        this.plugin.handleAuthCredentials(this.providerId, authResult.getCredential());
+    }
+
+    @Override
+    public void onFailure(@NonNull Exception exception) {
+        Log.w(OAUTH_TAG, String.format("%s login:failure", this.name), exception);
+        plugin.handleFailure(this.providerId, String.format("%s Sign In failure.", this.name), exception);
+    }
+
+    @Override
+    public Task<Void> signOut() {
+        // there is nothing to do here
+        Log.d(OAUTH_TAG, String.format("%s signOut called.", this.name));
+        return Tasks.forResult(null);
+    }
+
+    @Override
+    public int getRequestCode() {
+        // the sign in activity is managed by Firebase
+        return 0;
+    }
+
+    @Override
+    public void handleOnActivityResult(int requestCode, int resultCode, Intent data) {
+        // there is nothing to do here
+        Log.d(OAUTH_TAG, String.format("%s handleOnActivityResult called.", this.name));
+    }
+
+    @Override
+    public boolean isAuthenticated() {
+        return this.isAuthenticated(this.plugin.getFirebaseAuth());
+    }
+
+    /**
+     * The user provider id is always firebase, the linked providers are in its provider data.
+     */
+    private boolean isAuthenticated(FirebaseAuth firebaseAuth) {
+        FirebaseUser user = firebaseAuth.getCurrentUser();
+        if (user == null) {
+            return false;
+        }
+
+        for (UserInfo userInfo : user.getProviderData()) {
+            if (this.providerId.equals(userInfo.getProviderId())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public void fillResult(AuthCredential credential, JSObject jsResult, ResultFields fields) {
+        ResultParts.OAUTH.fillResult(credential, jsResult, fields);
+    }
+}
@@ -1,11 +1,17 @@
 package com.baumblatt.capacitor.firebase.auth.handlers;
 
+import android.app.Activity;
 import android.content.Intent;
 import android.util.Log;
 
+import com.baumblatt.capacitor.firebase.auth.AuthConfig;
+import com.baumblatt.capacitor.firebase.auth.AuthTraceBuffer;
 import com.baumblatt.capacitor.firebase.auth.CapacitorFirebaseAuth;
+import com.baumblatt.capacitor.firebase.auth.ResultFields;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.PluginCall;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.FirebaseException;
 import com.google.firebase.FirebaseTooManyRequestsException;
 import com.google.firebase.auth.AuthCredential;
@@ -15,14 +21,11 @@ import com.google.firebase.auth.PhoneAuthProvider;
 
 import java.util.concurrent.TimeUnit;
 
-public class PhoneProviderHandler implements ProviderHandler {
+public class PhoneProviderHandler implements ProviderHandler, CapacitorFirebaseAuth.CallOwner {
     private static final String PHONE_TAG = "PhoneProviderHandler";
 
-    private String mVerificationId;
-    private String mVerificationCode;
-
-    private PhoneAuthProvider.ForceResendingToken mResendToken;
-    private PhoneAuthProvider.OnVerificationStateChangedCallbacks mCallbacks;
+    private PhoneVerificationStore sessions;
+    private PhoneVerificationRateLimiter rateLimiter;
 
     private CapacitorFirebaseAuth plugin;
 
@@ -30,39 +33,86 @@ public class PhoneProviderHandler implements ProviderHandler {
     public void init(final CapacitorFirebaseAuth plugin) {
         this.plugin = plugin;
 
-        this.mCallbacks = new PhoneAuthProvider.OnVerificationStateChangedCallbacks() {
+        AuthConfig config = this.plugin.getConfig();
+        this.sessions = new PhoneVerificationStore(config.getPhoneMaxSessions(), config.getPhoneSessionTimeoutSeconds() * 1000L);
+        this.rateLimiter = new PhoneVerificationRateLimiter(
+                config.getPhoneNumberMaxRequests(), config.getPhoneNumberRefillSeconds() * 1000L,
+                config.getPhoneGlobalMaxRequests(), config.getPhoneGlobalRefillSeconds() * 1000L,
+                config.getPhoneMinBackoffSeconds() * 1000L, config.getPhoneMaxBackoffSeconds() * 1000L);
+        this.sessions.setListener(new PhoneVerificationStore.Listener() {
+            @Override
+            public void onExpired(PluginCall call) {
+                reject(call, "Phone verification expired.");
+            }
+        });
+        this.plugin.registerCallOwner(PhoneAuthProvider.PROVIDER_ID, this);
+    }
+
+    @Override
+    public void release(PluginCall call) {
+        this.sessions.releaseCall(call);
+    }
+
+    @Override
+    public void attach(Activity activity) {
+        // the activity is only used when the verification starts
+    }
+
+    @Override
+    public void detach() {
+        // the verification callbacks are released by Firebase with the activity
+    }
+
+    private PhoneAuthProvider.OnVerificationStateChangedCallbacks callbacks(final PhoneVerificationStore.Session session) {
+        return new PhoneAuthProvider.OnVerificationStateChangedCallbacks() {
             @Override
             public void onVerificationCompleted(PhoneAuthCredential credential) {
                 Log.d(PHONE_TAG, "PhoneAuth:onVerificationCompleted:" + credential);
-                mVerificationCode = credential.getSmsCode();
-
-                PluginCall call = plugin.getSavedCall();
+                session.verificationCode = credential.getSmsCode();
 
                 // Notify listeners of Code Received event.
                 JSObject jsEvent = new JSObject();
-                jsEvent.put("verificationId", mVerificationId);
-                jsEvent.put("verificationCode", mVerificationCode);
+                jsEvent.put("verificationId", session.verificationId);
+                jsEvent.put("verificationCode", session.verificationCode);
                 plugin.notifyListeners("cfaSignInPhoneOnCodeReceived", jsEvent);
 
+                PluginCall call = session.call;
+                session.call = null;
+                sessions.remove(session);
+                if (call == null || !plugin.takeCall(call)) {
+                    Log.d(PHONE_TAG, "No pending verification call on verification completed.");
+                    return;
+                }
+
                 JSObject jsUser = new JSObject();
                 jsUser.put("callbackId", call.getCallbackId());
                 jsUser.put("providerId", credential.getProvider());
-                jsUser.put("verificationId", mVerificationId);
-                jsUser.put("verificationCode", mVerificationCode);
+                jsUser.put("verificationId", session.verificationId);
+                jsUser.put("verificationCode", session.verificationCode);
 
                 call.success(jsUser);
+                plugin.getTraces().record(PhoneAuthProvider.PROVIDER_ID, call.getCallbackId(), AuthTraceBuffer.Event.RESOLVE);
             }
 
             @Override
             public void onVerificationFailed(FirebaseException error) {
                 Log.w(PHONE_TAG, "PhoneAuth:onVerificationFailed:" + error);
 
+                PluginCall call = session.call;
+                session.call = null;
+                if (call == null || !plugin.takeCall(call)) {
+                    Log.d(PHONE_TAG, "No pending verification call on verification failed.");
+                    return;
+                }
+
                 if (error instanceof FirebaseAuthInvalidCredentialsException) {
-                    plugin.handleFailure("Invalid phone number.", error);
+                    sessions.remove(session);
+                    plugin.handleFailure(call, "Invalid phone number.", error);
                 } else if (error instanceof FirebaseTooManyRequestsException) {
-                    plugin.handleFailure("Quota exceeded.", error);
+                    // answered as the local limit, the backend quota is only a further reason to wait
+                    rejectRateLimited(call, session.phone, rateLimiter.onQuotaExceeded(), error);
                 } else {
-                    plugin.handleFailure("PhoneAuth Sign In failure.", error);
+                    plugin.handleFailure(call, "PhoneAuth Sign In failure.", error);
                 }
 
             }
@@ -75,12 +125,14 @@ public class PhoneProviderHandler implements ProviderHandler {
                 Log.d(PHONE_TAG, "onCodeSent:" + verificationId);
 
                 // Save verification ID and resending token so we can use them later
-                mVerificationId = verificationId;
-                mResendToken = token;
+                session.verificationId = verificationId;
+                session.resendToken = token;
+                session.touch();
+                rateLimiter.onSuccess();
 
                 // Notify listeners of Code Sent event.
                 JSObject jsEvent = new JSObject();
-                jsEvent.put("verificationId", mVerificationId);
+                jsEvent.put("verificationId", verificationId);
                 plugin.notifyListeners("cfaSignInPhoneOnCodeSent", jsEvent);
             }
         };
@@ -89,7 +141,7 @@ public class PhoneProviderHandler implements ProviderHandler {
     @Override
     public void signIn(PluginCall call) {
         if (!call.getData().has("data")) {
-            call.reject("The auth data is required");
+            this.reject(call, "The auth data is required");
             return;
         }
 
@@ -97,24 +149,89 @@ public class PhoneProviderHandler implements ProviderHandler {
 
         String phone = data.getString("phone", "");
         if (phone.equalsIgnoreCase("null") || phone.equalsIgnoreCase("")) {
-            call.reject("The phone number is required");
+            this.reject(call, "The phone number is required");
             return;
         }
 
         String code = data.getString("verificationCode", "");
         if(code.equalsIgnoreCase("null") || code.equalsIgnoreCase("")) {
-            PhoneAuthProvider.getInstance().verifyPhoneNumber
-                    (phone, 60, TimeUnit.SECONDS, this.plugin.getActivity(), this.mCallbacks);
+            long retryAfter = this.rateLimiter.tryAcquire(phone);
+            if (retryAfter > 0) {
+                Log.w(PHONE_TAG, String.format("Phone verification rate limited for %d ms.", retryAfter));
+                if (this.plugin.takeCall(call)) {
+                    this.rejectRateLimited(call, phone, retryAfter, null);
+                }
+                return;
+            }
+
+            PhoneVerificationStore.Session session = this.sessions.getOrCreate(phone);
+            if (session.call != null) {
+                this.reject(session.call, "Phone verification superseded by a new request.");
+            }
+            session.call = call;
+
+            // the verification runs on the FirebaseAuth instance of the call app and tenant
+            PhoneAuthProvider phoneAuthProvider = this.plugin.getBackends().getPhoneAuthProvider(this.plugin.getFirebaseAuth(call));
+            if (session.resendToken != null) {
+                Log.d(PHONE_TAG, "Resending the verification code.");
+                phoneAuthProvider.verifyPhoneNumber
+                        (phone, 60, TimeUnit.SECONDS, this.plugin.getActivity(), this.callbacks(session), session.resendToken);
+            } else {
+                phoneAuthProvider.verifyPhoneNumber
+                        (phone, 60, TimeUnit.SECONDS, this.plugin.getActivity(), this.callbacks(session));
+            }
         } else {
-            AuthCredential credential = PhoneAuthProvider.getCredential(this.mVerificationId, code);
-            this.mVerificationCode = code;
-            plugin.handleAuthCredentials(credential);
+            PhoneVerificationStore.Session session = this.sessions.get(phone);
+            if (session == null || session.verificationId == null) {
+                this.reject(call, "There is no verification in progress for the phone number.");
+                return;
+            }
+
+            AuthCredential credential = PhoneAuthProvider.getCredential(session.verificationId, code);
+            session.verificationCode = code;
+            session.credential = credential;
+            if (this.plugin.takeCall(call)) {
+                this.plugin.handleAuthCredentials(call, credential);
+            }
+        }
+    }
+
+    /**
+     * Reject the call, unless it was already answered on its deadline or by a cancel sign in, recording the reject
+     * in the traces so the sign in trace is closed.
+     */
+    private void reject(PluginCall call, String message) {
+        if (this.plugin.takeCall(call)) {
+            this.plugin.rejectCall(call, message, null, null);
         }
     }
 
+    /**
+     * Reject the taken verification call with the RATE_LIMITED code, and notify listeners the phone verification
+     * is blocked, so the UI can show a countdown.
+     */
+    private void rejectRateLimited(PluginCall call, String phone, long retryAfterMillis, Exception error) {
+        long seconds = (retryAfterMillis + 999) / 1000;
+
+        JSObject jsEvent = new JSObject();
+        jsEvent.put("phone", phone);
+        jsEvent.put("retryAfter", seconds);
+        plugin.notifyListeners("cfaSignInPhoneOnRateLimited", jsEvent);
+
+        String message = String.format("Too many verification requests, retry after %d seconds.", seconds);
+        this.plugin.rejectCall(call, message, "RATE_LIMITED", error);
+    }
+
     @Override
-    public void signOut() {
+    public void silentSignIn(PluginCall call, SilentSignInCallback callback) {
+        // the phone verification always needs the verification code
+        callback.onFailure();
+    }
+
+    @Override
+    public Task<Void> signOut() {
         // there is nothing to do here
+        return Tasks.forResult(null);
     }
 
     @Override
@@ -134,11 +251,9 @@ public class PhoneProviderHandler implements ProviderHandler {
     }
 
     @Override
-    public void fillResult(AuthCredential auth, JSObject jsUser) {
-        jsUser.put("verificationId", this.mVerificationId);
-        jsUser.put("verificationCode", this.mVerificationCode);
-
-        this.mVerificationId = null;
-        this.mVerificationCode = null;
+    public void fillResult(AuthCredential auth, JSObject jsUser, ResultFields fields) {
+        if (!this.sessions.fillResult(auth, jsUser, fields)) {
+            Log.w(PHONE_TAG, "Ops, there is no verification session for the credential.");
+        }
     }
 }
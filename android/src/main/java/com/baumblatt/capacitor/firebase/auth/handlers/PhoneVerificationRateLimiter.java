@@ -0,0 +1,121 @@
+package com.baumblatt.capacitor.firebase.auth.handlers;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Client side limit of the phone verification requests, protecting the project SMS quota from retry loops.
+ *
+ * Requests go through a token bucket per phone number and a global one. Once the backend reports the quota
+ * was exceeded, every request is blocked for an exponentially growing time, until a code is sent again.
+ */
+class PhoneVerificationRateLimiter {
+    private static final int MAX_NUMBERS = 100;
+
+    private static class TokenBucket {
+        private final int capacity;
+        private final long refillMillis;
+        private double tokens;
+        private long refilledAt;
+
+        TokenBucket(int capacity, long refillMillis, long now) {
+            this.capacity = capacity;
+            this.refillMillis = refillMillis;
+            this.tokens = capacity;
+            this.refilledAt = now;
+        }
+
+        void refill(long now) {
+            this.tokens = Math.min(this.capacity, this.tokens + (double) (now - this.refilledAt) / this.refillMillis);
+            this.refilledAt = now;
+        }
+
+        /**
+         * @return How long until a token is available, zero if there is one.
+         */
+        long waitTime() {
+            return this.tokens >= 1 ? 0 : (long) Math.ceil((1 - this.tokens) * this.refillMillis);
+        }
+
+        void take() {
+            this.tokens -= 1;
+        }
+    }
+
+    private final int numberCapacity;
+    private final long numberRefillMillis;
+    private final long minBackoffMillis;
+    private final long maxBackoffMillis;
+    private final TokenBucket global;
+    private final Map<String, TokenBucket> numbers = new LinkedHashMap<String, TokenBucket>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, TokenBucket> eldest) {
+            return this.size() > MAX_NUMBERS;
+        }
+    };
+
+    private int quotaFailures = 0;
+    private long blockedUntil = 0;
+
+    /**
+     * @param numberCapacity The requests a phone number may burst, then one more per refill interval.
+     * @param globalCapacity The requests all the numbers may burst, then one more per refill interval.
+     * @param minBackoffMillis The first block after a quota error, doubled on each further error.
+     */
+    PhoneVerificationRateLimiter(int numberCapacity, long numberRefillMillis, int globalCapacity, long globalRefillMillis,
+                                 long minBackoffMillis, long maxBackoffMillis) {
+        this.numberCapacity = numberCapacity;
+        this.numberRefillMillis = numberRefillMillis;
+        this.minBackoffMillis = minBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.global = new TokenBucket(globalCapacity, globalRefillMillis, System.currentTimeMillis());
+    }
+
+    /**
+     * Take a token for a verification request of the phone number.
+     * @return Zero if the request is allowed, otherwise how many milliseconds to wait before retry.
+     */
+    synchronized long tryAcquire(String phone) {
+        long now = System.currentTimeMillis();
+        if (now < this.blockedUntil) {
+            return this.blockedUntil - now;
+        }
+
+        TokenBucket number = this.numbers.get(phone);
+        if (number == null) {
+            number = new TokenBucket(this.numberCapacity, this.numberRefillMillis, now);
+            this.numbers.put(phone, number);
+        }
+
+        number.refill(now);
+        this.global.refill(now);
+
+        long wait = Math.max(number.waitTime(), this.global.waitTime());
+        if (wait > 0) {
+            return wait;
+        }
+
+        number.take();
+        this.global.take();
+        return 0;
+    }
+
+    /**
+     * The backend accepted a verification request, so the quota backoff is reset.
+     */
+    synchronized void onSuccess() {
+        this.quotaFailures = 0;
+        this.blockedUntil = 0;
+    }
+
+    /**
+     * The backend reported the quota was exceeded, block the requests for a growing time.
+     * @return How many milliseconds the requests are blocked.
+     */
+    synchronized long onQuotaExceeded() {
+        long backoff = Math.min(this.minBackoffMillis << Math.min(this.quotaFailures, 16), this.maxBackoffMillis);
+        this.quotaFailures++;
+        this.blockedUntil = System.currentTimeMillis() + backoff;
+        return backoff;
+    }
+}
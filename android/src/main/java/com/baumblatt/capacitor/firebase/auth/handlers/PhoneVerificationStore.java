@@ -0,0 +1,159 @@
+package com.baumblatt.capacitor.firebase.auth.handlers;
+
+import com.baumblatt.capacitor.firebase.auth.ResultFields;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+import com.google.firebase.auth.AuthCredential;
+import com.google.firebase.auth.PhoneAuthProvider;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Phone verification sessions keyed by phone number, bounded in size and evicted after a time to live.
+ *
+ * Keeping the verification id and the resending token per number allows verifying more than one number,
+ * and resending the code without starting a new verification.
+ */
+class PhoneVerificationStore {
+
+    static class Session {
+        final String phone;
+        String verificationId;
+        String verificationCode;
+        PhoneAuthProvider.ForceResendingToken resendToken;
+        PluginCall call;
+        AuthCredential credential;
+        long updatedAt;
+
+        Session(String phone) {
+            this.phone = phone;
+            this.touch();
+        }
+
+        void touch() {
+            this.updatedAt = System.currentTimeMillis();
+        }
+    }
+
+    interface Listener {
+        /**
+         * The session of the verification call expired, the call is no longer in the store.
+         */
+        void onExpired(PluginCall call);
+    }
+
+    private final long ttlMillis;
+    private final Map<String, Session> sessions;
+    private Listener listener;
+
+    PhoneVerificationStore(final int maxSize, long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.sessions = new LinkedHashMap<String, Session>(maxSize, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Session> eldest) {
+                if (this.size() > maxSize) {
+                    release(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return The session of the phone number, or null if there is none or it is expired.
+     */
+    synchronized Session get(String phone) {
+        this.evictExpired();
+        return this.sessions.get(phone);
+    }
+
+    synchronized Session getOrCreate(String phone) {
+        Session session = this.get(phone);
+        if (session == null) {
+            session = new Session(phone);
+            this.sessions.put(phone, session);
+        }
+
+        session.touch();
+        return session;
+    }
+
+    synchronized Session findByCredential(AuthCredential credential) {
+        for (Session session : this.sessions.values()) {
+            if (session.credential == credential) {
+                return session;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Put the verification of the credential in the sign in result, and drop its session.
+     * @return false if there is no session for the credential.
+     */
+    synchronized boolean fillResult(AuthCredential credential, JSObject jsResult, ResultFields fields) {
+        Session session = this.findByCredential(credential);
+        if (session == null) {
+            return false;
+        }
+
+        if (fields.has("verificationId")) {
+            jsResult.put("verificationId", session.verificationId);
+        }
+        if (fields.has("verificationCode")) {
+            jsResult.put("verificationCode", session.verificationCode);
+        }
+
+        this.remove(session);
+        return true;
+    }
+
+    /**
+     * Forget the verification call, answered by the plugin, keeping its session for the code.
+     */
+    synchronized void releaseCall(PluginCall call) {
+        for (Session session : this.sessions.values()) {
+            if (session.call == call) {
+                session.call = null;
+            }
+        }
+    }
+
+    synchronized void remove(Session session) {
+        if (this.sessions.get(session.phone) == session) {
+            this.sessions.remove(session.phone);
+        }
+    }
+
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<Session> iterator = this.sessions.values().iterator();
+        while (iterator.hasNext()) {
+            Session session = iterator.next();
+            if (now - session.updatedAt > this.ttlMillis) {
+                this.release(session);
+                iterator.remove();
+            }
+        }
+    }
+
+    private void release(Session session) {
+        PluginCall call = session.call;
+        session.call = null;
+        if (call != null) {
+            if (this.listener != null) {
+                this.listener.onExpired(call);
+            } else {
+                call.reject("Phone verification expired.");
+            }
+        }
+    }
+}
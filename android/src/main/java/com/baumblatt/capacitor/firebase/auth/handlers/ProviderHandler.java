@@ -1,25 +1,42 @@
 package com.baumblatt.capacitor.firebase.auth.handlers;
 
+import android.app.Activity;
 import android.content.Intent;
 
 import com.baumblatt.capacitor.firebase.auth.CapacitorFirebaseAuth;
-import com.getcapacitor.JSObject;
 import com.getcapacitor.PluginCall;
-import com.google.firebase.auth.AuthCredential;
+import com.google.android.gms.tasks.Task;
 import com.google.firebase.auth.FirebaseUser;
 
-public interface ProviderHandler {
+public interface ProviderHandler extends ResultFiller {
     void init(CapacitorFirebaseAuth plugin);
 
+    /**
+     * Bind the activity bound objects of the handler, after init and whenever the activity is recreated.
+     */
+    void attach(Activity activity);
+
+    /**
+     * Release the activity bound objects of the handler, when the activity is destroyed.
+     */
+    void detach();
+
     void signIn(PluginCall call);
 
-    void signOut();
+    /**
+     * Try to sign in without user interaction, before falling back to {@link #signIn(PluginCall)}.
+     */
+    void silentSignIn(PluginCall call, SilentSignInCallback callback);
+
+    /**
+     * Clear the provider session.
+     * @return The sign out task, completed once the session is cleared.
+     */
+    Task<Void> signOut();
 
     int getRequestCode();
 
     void handleOnActivityResult(int requestCode, int resultCode, Intent data);
 
     boolean isAuthenticated();
-
-    void fillResult(AuthCredential credential, JSObject jsResult);
 }
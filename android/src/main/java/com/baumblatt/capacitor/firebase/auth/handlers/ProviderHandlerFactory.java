@@ -0,0 +1,8 @@
+package com.baumblatt.capacitor.firebase.auth.handlers;
+
+/**
+ * Creates the handler of a provider, see {@link com.baumblatt.capacitor.firebase.auth.ProviderHandlerRegistry}.
+ */
+public interface ProviderHandlerFactory {
+    ProviderHandler create();
+}
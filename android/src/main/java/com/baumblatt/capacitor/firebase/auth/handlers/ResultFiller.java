@@ -0,0 +1,15 @@
+package com.baumblatt.capacitor.firebase.auth.handlers;
+
+import com.baumblatt.capacitor.firebase.auth.ResultFields;
+import com.getcapacitor.JSObject;
+import com.google.firebase.auth.AuthCredential;
+
+/**
+ * Adds the provider parts of the sign in result.
+ */
+public interface ResultFiller {
+    /**
+     * @param fields The fields requested by the calls, the others are neither computed nor added.
+     */
+    void fillResult(AuthCredential credential, JSObject jsResult, ResultFields fields);
+}
@@ -0,0 +1,89 @@
+package com.baumblatt.capacitor.firebase.auth.handlers;
+
+import com.baumblatt.capacitor.firebase.auth.CredentialCache;
+import com.baumblatt.capacitor.firebase.auth.ResultFields;
+import com.getcapacitor.JSObject;
+import com.google.firebase.auth.AuthCredential;
+
+/**
+ * The provider parts of the sign in result, put by the handlers fillResult. They only use the credential cache
+ * and the reflective {@link CredentialParts}, not the provider SDKs, so the benchmark module runs this same code.
+ */
+public final class ResultParts {
+
+    /**
+     * The generic OAuth providers id token and access token.
+     */
+    public static final ResultFiller OAUTH = new ResultFiller() {
+        @Override
+        public void fillResult(AuthCredential credential, JSObject jsResult, ResultFields fields) {
+            if (credential != null) {
+                if (fields.has("idToken")) {
+                    jsResult.put("idToken", CredentialParts.get(credential, "getIdToken"));
+                }
+                if (fields.has("accessToken")) {
+                    jsResult.put("accessToken", CredentialParts.get(credential, "getAccessToken"));
+                }
+            }
+        }
+    };
+
+    /**
+     * The Twitter access token, as the id token, and secret.
+     */
+    public static final ResultFiller TWITTER = new ResultFiller() {
+        @Override
+        public void fillResult(AuthCredential credential, JSObject jsResult, ResultFields fields) {
+            if (credential != null) {
+                if (fields.has("idToken")) {
+                    jsResult.put("idToken", CredentialParts.get(credential, "getAccessToken"));
+                }
+                if (fields.has("secret")) {
+                    jsResult.put("secret", CredentialParts.get(credential, "getSecret"));
+                }
+            }
+        }
+    };
+
+    /**
+     * The Apple access token, as the id token, and raw nonce.
+     */
+    public static final ResultFiller APPLE = new ResultFiller() {
+        @Override
+        public void fillResult(AuthCredential credential, JSObject jsResult, ResultFields fields) {
+            if (credential != null) {
+                if (fields.has("idToken")) {
+                    jsResult.put("idToken", CredentialParts.get(credential, "getAccessToken"));
+                }
+                if (fields.has("rawNonce")) {
+                    jsResult.put("rawNonce", CredentialParts.get(credential, "getRawNonce"));
+                }
+            }
+        }
+    };
+
+    private ResultParts() {
+    }
+
+    /**
+     * The Google and Facebook token, from the credential cache.
+     * @param fallback Puts the token from the provider SDK, when it is requested but not cached.
+     */
+    public static ResultFiller cachedToken(final CredentialCache cache, final String providerId, final ResultFiller fallback) {
+        return new ResultFiller() {
+            @Override
+            public void fillResult(AuthCredential credential, JSObject jsResult, ResultFields fields) {
+                if (!fields.has("idToken")) {
+                    return;
+                }
+
+                String token = cache.getToken(providerId);
+                if (token != null) {
+                    jsResult.put("idToken", token);
+                } else {
+                    fallback.fillResult(credential, jsResult, fields);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,19 @@
+package com.baumblatt.capacitor.firebase.auth.handlers;
+
+import com.google.firebase.auth.AuthCredential;
+
+/**
+ * Outcome of a {@link ProviderHandler#silentSignIn} attempt.
+ */
+public interface SilentSignInCallback {
+    /**
+     * The user is signed in without interaction.
+     * @param credential The new credential, or null if the current provider session is still valid.
+     */
+    void onSuccess(AuthCredential credential);
+
+    /**
+     * There is no way to sign in without interaction, the interactive flow is required.
+     */
+    void onFailure();
+}
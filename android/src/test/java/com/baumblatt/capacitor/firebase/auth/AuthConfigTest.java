@@ -0,0 +1,88 @@
+package com.baumblatt.capacitor.firebase.auth;
+
+import com.getcapacitor.CapConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.baumblatt.capacitor.firebase.auth.CapacitorFirebaseAuth.CONFIG_KEY_PREFIX;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * The keys read from the Capacitor config and the keys compiled by the generateCompiledAuthConfig Gradle task
+ * must be the same, with the same types, or a compiled config would silently drop a value.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class AuthConfigTest {
+    private static final Pattern GRADLE_KEY = Pattern.compile("\\['([\\w.]+)', 'set\\w+', '(\\w+)'\\]");
+
+    @Test
+    public void capConfigKeysMatchTheGradleKeys() throws Exception {
+        assertEquals(gradleKeys(), capConfigKeys());
+    }
+
+    /**
+     * @return The keys and types of the cfaConfigKeys list of the module build file.
+     */
+    private static Map<String, String> gradleKeys() throws Exception {
+        // the unit tests run in the module directory
+        String buildFile = new String(Files.readAllBytes(new File("build.gradle").toPath()), Charset.forName("UTF-8"));
+        int start = buildFile.indexOf("def cfaConfigKeys = [");
+        String keyList = buildFile.substring(start, buildFile.indexOf("\n]", start));
+
+        Map<String, String> keys = new TreeMap<>();
+        Matcher matcher = GRADLE_KEY.matcher(keyList);
+        while (matcher.find()) {
+            keys.put(matcher.group(1), matcher.group(2));
+        }
+
+        return keys;
+    }
+
+    /**
+     * @return The keys and types AuthConfig.fromCapConfig reads, recorded on a config answering the defaults.
+     */
+    private static Map<String, String> capConfigKeys() {
+        final Map<String, String> keys = new TreeMap<>();
+        CapConfig config = mock(CapConfig.class, new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                String key = invocation.getArgument(0);
+                keys.put(key.substring(CONFIG_KEY_PREFIX.length()), type(invocation.getMethod().getName()));
+                return invocation.getArguments().length > 1 ? invocation.getArgument(1) : null;
+            }
+        });
+
+        AuthConfig.fromCapConfig(config);
+        return keys;
+    }
+
+    private static String type(String getter) {
+        switch (getter) {
+            case "getArray":
+                return "strings";
+            case "getString":
+                return "string";
+            case "getBoolean":
+                return "boolean";
+            case "getInt":
+                return "int";
+            default:
+                throw new IllegalArgumentException("Unexpected config getter " + getter);
+        }
+    }
+}
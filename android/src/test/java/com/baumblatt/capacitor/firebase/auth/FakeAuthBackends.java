@@ -0,0 +1,291 @@
+package com.baumblatt.capacitor.firebase.auth;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
+import com.google.android.gms.auth.api.signin.GoogleSignInClient;
+import com.google.android.gms.auth.api.signin.GoogleSignInOptions;
+import com.google.android.gms.auth.api.signin.GoogleSignInStatusCodes;
+import com.google.android.gms.common.ConnectionResult;
+import com.google.android.gms.common.api.ApiException;
+import com.google.android.gms.common.api.CommonStatusCodes;
+import com.google.android.gms.common.api.Status;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseException;
+import com.google.firebase.auth.AuthCredential;
+import com.google.firebase.auth.AuthResult;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.auth.PhoneAuthCredential;
+import com.google.firebase.auth.PhoneAuthProvider;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.nio.charset.Charset;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * In-process identity backends: FirebaseAuth, GoogleSignInClient and PhoneAuthProvider answer after a random
+ * latency, and fail at the given rate, without any network or Play Services.
+ *
+ * The Google sign in activity result is built with {@link #googleResult(int)}. The phone verification sends the
+ * code, then retrieves it automatically. The Facebook login button only accepts the SDK callback manager, so it is
+ * kept, and only its cancel and failure results can be driven without the Facebook app.
+ */
+public class FakeAuthBackends extends AuthBackends {
+    public static final int RESULT_SUCCESS = 0;
+    public static final int RESULT_CANCEL = 1;
+    public static final int RESULT_FAILURE = 2;
+    public static final String SMS_CODE = "123456";
+
+    private static final String EXTRA_RESULT = "fake.result";
+    // {"alg":"none"}.{"sub":"fake","exp":4102444800}, never expires for the tests
+    private static final String ID_TOKEN = base64("{\"alg\":\"none\"}") + "." + base64("{\"sub\":\"fake\",\"exp\":4102444800}") + ".";
+
+    private final int maxLatencyMillis;
+    private final double failureRate;
+    private final Random random = new Random(42);
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final AtomicBoolean googleSignedIn = new AtomicBoolean(false);
+    private final AtomicInteger pendingTasks = new AtomicInteger(0);
+
+    private final GoogleSignInAccount account;
+    private final GoogleSignInClient googleClient;
+    private final FirebaseAuth firebaseAuth;
+    private final PhoneAuthProvider phoneAuthProvider;
+
+    /**
+     * @param maxLatencyMillis The latency of each backend task is random, up to this bound.
+     * @param failureRate The rate of failed backend tasks, from 0 to 1.
+     */
+    public FakeAuthBackends(int maxLatencyMillis, double failureRate) {
+        this.maxLatencyMillis = maxLatencyMillis;
+        this.failureRate = failureRate;
+
+        this.account = mock(GoogleSignInAccount.class, withSettings().stubOnly());
+        when(this.account.getIdToken()).thenReturn(ID_TOKEN);
+
+        this.googleClient = mock(GoogleSignInClient.class, withSettings().stubOnly());
+        when(this.googleClient.getSignInIntent()).thenReturn(new Intent("fake.GOOGLE_SIGN_IN"));
+        when(this.googleClient.silentSignIn()).thenAnswer(new Answer<Task<GoogleSignInAccount>>() {
+            @Override
+            public Task<GoogleSignInAccount> answer(InvocationOnMock invocation) {
+                return googleSignedIn.get() ? later(account) : FakeAuthBackends.this.<GoogleSignInAccount>failLater(
+                        new ApiException(new Status(GoogleSignInStatusCodes.SIGN_IN_REQUIRED)));
+            }
+        });
+        when(this.googleClient.signOut()).thenAnswer(new Answer<Task<Void>>() {
+            @Override
+            public Task<Void> answer(InvocationOnMock invocation) {
+                googleSignedIn.set(false);
+                return later(null);
+            }
+        });
+
+        final FirebaseUser user = mock(FirebaseUser.class, withSettings().stubOnly());
+        when(user.getUid()).thenReturn("fake-uid");
+        final AuthResult authResult = mock(AuthResult.class, withSettings().stubOnly());
+        when(authResult.getUser()).thenReturn(user);
+
+        this.firebaseAuth = mock(FirebaseAuth.class, withSettings().stubOnly());
+        when(this.firebaseAuth.getCurrentUser()).thenReturn(user);
+        when(this.firebaseAuth.signInWithCredential(any(AuthCredential.class))).thenAnswer(new Answer<Task<AuthResult>>() {
+            @Override
+            public Task<AuthResult> answer(InvocationOnMock invocation) {
+                return later(authResult);
+            }
+        });
+
+        final PhoneAuthProvider.ForceResendingToken resendToken = mock(PhoneAuthProvider.ForceResendingToken.class, withSettings().stubOnly());
+        final PhoneAuthCredential smsCredential = mock(PhoneAuthCredential.class, withSettings().stubOnly());
+        when(smsCredential.getProvider()).thenReturn(PhoneAuthProvider.PROVIDER_ID);
+        when(smsCredential.getSmsCode()).thenReturn(SMS_CODE);
+
+        Answer<Void> verifyPhoneNumber = new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                final String phone = invocation.getArgument(0);
+                final PhoneAuthProvider.OnVerificationStateChangedCallbacks callbacks = invocation.getArgument(4);
+
+                if (shouldFail()) {
+                    onMainLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            callbacks.onVerificationFailed(new FirebaseException("Injected failure."));
+                        }
+                    });
+                    return null;
+                }
+
+                onMainLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        callbacks.onCodeSent("verification-" + phone, resendToken);
+                        onMainLater(new Runnable() {
+                            @Override
+                            public void run() {
+                                callbacks.onVerificationCompleted(smsCredential);
+                            }
+                        });
+                    }
+                });
+                return null;
+            }
+        };
+
+        this.phoneAuthProvider = mock(PhoneAuthProvider.class, withSettings().stubOnly());
+        doAnswer(verifyPhoneNumber).when(this.phoneAuthProvider).verifyPhoneNumber(anyString(), anyLong(), any(TimeUnit.class),
+                any(Activity.class), any(PhoneAuthProvider.OnVerificationStateChangedCallbacks.class));
+        doAnswer(verifyPhoneNumber).when(this.phoneAuthProvider).verifyPhoneNumber(anyString(), anyLong(), any(TimeUnit.class),
+                any(Activity.class), any(PhoneAuthProvider.OnVerificationStateChangedCallbacks.class),
+                any(PhoneAuthProvider.ForceResendingToken.class));
+    }
+
+    /**
+     * @return The data of a Google sign in activity result with the given outcome.
+     */
+    public static Intent googleResult(int outcome) {
+        return new Intent().putExtra(EXTRA_RESULT, outcome);
+    }
+
+    /**
+     * @return The number of backend tasks which did not complete yet.
+     */
+    public int getPendingTasks() {
+        return this.pendingTasks.get();
+    }
+
+    public void shutdown() {
+        this.scheduler.shutdownNow();
+    }
+
+    @Override
+    public FirebaseAuth getFirebaseAuth(FirebaseApp app) {
+        return this.firebaseAuth;
+    }
+
+    @Override
+    public PhoneAuthProvider getPhoneAuthProvider(FirebaseAuth firebaseAuth) {
+        return this.phoneAuthProvider;
+    }
+
+    @Override
+    public int isGooglePlayServicesAvailable(Context context) {
+        return ConnectionResult.SUCCESS;
+    }
+
+    @Override
+    public GoogleSignInClient getGoogleSignInClient(Activity activity, GoogleSignInOptions options) {
+        return this.googleClient;
+    }
+
+    @Override
+    public GoogleSignInClient getGoogleSignInClient(Context context, GoogleSignInOptions options) {
+        return this.googleClient;
+    }
+
+    @Override
+    public GoogleSignInAccount getLastSignedInAccount(Context context) {
+        return this.googleSignedIn.get() ? this.account : null;
+    }
+
+    @Override
+    public Task<GoogleSignInAccount> getSignedInAccountFromIntent(Intent data) {
+        int outcome = data != null ? data.getIntExtra(EXTRA_RESULT, RESULT_FAILURE) : RESULT_FAILURE;
+
+        if (outcome == RESULT_SUCCESS) {
+            this.googleSignedIn.set(true);
+            return Tasks.forResult(this.account);
+        } else if (outcome == RESULT_CANCEL) {
+            return Tasks.forException(new ApiException(new Status(GoogleSignInStatusCodes.SIGN_IN_CANCELLED)));
+        } else {
+            return Tasks.forException(new ApiException(new Status(CommonStatusCodes.INTERNAL_ERROR)));
+        }
+    }
+
+    private <T> Task<T> later(final T result) {
+        if (this.shouldFail()) {
+            return this.failLater(new FirebaseException("Injected failure."));
+        }
+
+        final TaskCompletionSource<T> source = new TaskCompletionSource<>();
+        this.pendingTasks.incrementAndGet();
+        this.scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                source.setResult(result);
+                pendingTasks.decrementAndGet();
+            }
+        }, this.latency(), TimeUnit.MILLISECONDS);
+
+        return source.getTask();
+    }
+
+    private <T> Task<T> failLater(final Exception exception) {
+        final TaskCompletionSource<T> source = new TaskCompletionSource<>();
+        this.pendingTasks.incrementAndGet();
+        this.scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                source.setException(exception);
+                pendingTasks.decrementAndGet();
+            }
+        }, this.latency(), TimeUnit.MILLISECONDS);
+
+        return source.getTask();
+    }
+
+    /**
+     * Run the task on the main thread after the backend latency, as the SDK callbacks do.
+     */
+    private void onMainLater(final Runnable task) {
+        this.pendingTasks.incrementAndGet();
+        this.scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        task.run();
+                        pendingTasks.decrementAndGet();
+                    }
+                });
+            }
+        }, this.latency(), TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized boolean shouldFail() {
+        return this.random.nextDouble() < this.failureRate;
+    }
+
+    private synchronized long latency() {
+        return this.maxLatencyMillis > 0 ? this.random.nextInt(this.maxLatencyMillis) : 0;
+    }
+
+    private static String base64(String json) {
+        return java.util.Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(Charset.forName("UTF-8")));
+    }
+}
@@ -0,0 +1,174 @@
+package com.baumblatt.capacitor.firebase.auth;
+
+import android.app.Activity;
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.facebook.FacebookSdk;
+import com.getcapacitor.Bridge;
+import com.getcapacitor.CapConfig;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
+import com.google.firebase.auth.FacebookAuthProvider;
+import com.google.firebase.auth.GoogleAuthProvider;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Recreates the activity many times, each one with its own plugin as the Capacitor bridge does, driven through
+ * load, resume, pause and destroy. Checks no activity or plugin is retained and the used heap stays flat.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ProviderHandlerLeakTest {
+    private static final int WARM_UP_RECREATIONS = 5;
+    private static final int RECREATIONS = 50;
+    private static final long MAX_HEAP_GROWTH_BYTES = 2 * 1024 * 1024;
+    private static final int MAX_GC_ATTEMPTS = 20;
+    private static final long GC_RETRY_MILLIS = 50;
+
+    private Context context;
+    private FakeAuthBackends backends;
+    private Bridge bridge;
+    private Activity activity;
+
+    @Before
+    public void setUp() {
+        this.context = ApplicationProvider.getApplicationContext();
+        if (FirebaseApp.getApps(this.context).isEmpty()) {
+            FirebaseApp.initializeApp(this.context, new FirebaseOptions.Builder()
+                    .setApplicationId("1:1234567890:android:0123456789abcdef")
+                    .setApiKey("fake-api-key")
+                    .setProjectId("fake-project")
+                    .build());
+        }
+        FacebookSdk.setApplicationId("1234567890");
+        FacebookSdk.sdkInitialize(this.context);
+
+        this.backends = new FakeAuthBackends(0, 0);
+
+        // the bridge answers the current activity, a stubbed value would keep every activity in the mock
+        this.bridge = mock(Bridge.class, withSettings().stubOnly());
+        when(this.bridge.getContext()).thenReturn(this.context);
+        doAnswer(new Answer<Activity>() {
+            @Override
+            public Activity answer(InvocationOnMock invocation) {
+                return activity;
+            }
+        }).when(this.bridge).getActivity();
+    }
+
+    @After
+    public void tearDown() {
+        this.backends.shutdown();
+    }
+
+    @Test
+    public void googleHandlerReleasesTheActivity() throws Exception {
+        this.assertNoLeak(GoogleAuthProvider.PROVIDER_ID);
+    }
+
+    @Test
+    public void facebookHandlerReleasesTheActivity() throws Exception {
+        this.assertNoLeak(FacebookAuthProvider.PROVIDER_ID);
+    }
+
+    private void assertNoLeak(String providerId) throws Exception {
+        // the SDK singletons are created on the first recreations, so they are not counted
+        this.recreate(providerId, WARM_UP_RECREATIONS, null);
+        long baseline = usedHeap(new ArrayList<WeakReference<?>>());
+
+        List<WeakReference<?>> references = new ArrayList<>();
+        this.recreate(providerId, RECREATIONS, references);
+        long growth = usedHeap(references) - baseline;
+
+        for (WeakReference<?> reference : references) {
+            assertNull("The activity or the plugin was retained after destroy.", reference.get());
+        }
+        assertTrue(String.format("The used heap grew %d bytes.", growth), growth < MAX_HEAP_GROWTH_BYTES);
+    }
+
+    private void recreate(String providerId, int count, List<WeakReference<?>> references) throws Exception {
+        JSONObject jsConfig = new JSONObject().put("plugins", new JSONObject()
+                .put("CapacitorFirebaseAuth", new JSONObject().put("providers", new JSONArray().put(providerId))));
+
+        for (int index = 0; index < count; index++) {
+            ActivityController<Activity> controller = Robolectric.buildActivity(Activity.class).setup();
+            this.activity = controller.get();
+
+            CapacitorFirebaseAuth plugin = new CapacitorFirebaseAuth();
+            plugin.setBridge(this.bridge);
+            plugin.setConfig(new CapConfig(this.activity.getAssets(), jsConfig));
+            plugin.setBackends(this.backends);
+            plugin.load();
+            plugin.handleOnResume();
+
+            if (references != null) {
+                references.add(new WeakReference<>(this.activity));
+                references.add(new WeakReference<>(plugin));
+            }
+
+            controller.pause();
+            plugin.handleOnPause();
+            controller.stop();
+            plugin.handleOnDestroy();
+            controller.destroy();
+            this.activity = null;
+
+            ShadowLooper.idleMainLooper();
+        }
+    }
+
+    /**
+     * Collect until every reference is cleared, or the attempts run out, since a single collection
+     * request may not reclaim everything.
+     */
+    private static long usedHeap(List<WeakReference<?>> references) throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int attempt = 0; attempt < MAX_GC_ATTEMPTS; attempt++) {
+            System.gc();
+            System.runFinalization();
+            Thread.sleep(GC_RETRY_MILLIS);
+
+            if (attempt > 0 && cleared(references)) {
+                break;
+            }
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static boolean cleared(List<WeakReference<?>> references) {
+        for (WeakReference<?> reference : references) {
+            if (reference.get() != null) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
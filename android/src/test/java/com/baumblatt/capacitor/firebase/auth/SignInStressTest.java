@@ -0,0 +1,255 @@
+package com.baumblatt.capacitor.firebase.auth;
+
+import android.app.Activity;
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.baumblatt.capacitor.firebase.auth.handlers.FacebookProviderHandler;
+import com.baumblatt.capacitor.firebase.auth.handlers.GoogleProviderHandler;
+import com.facebook.FacebookSdk;
+import com.getcapacitor.Bridge;
+import com.getcapacitor.CapConfig;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.MessageHandler;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginResult;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
+import com.google.firebase.auth.FacebookAuthProvider;
+import com.google.firebase.auth.GoogleAuthProvider;
+import com.google.firebase.auth.PhoneAuthProvider;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Drives thousands of interleaved sign in, sign out, cancel and activity result cycles against the in-process
+ * backends, with random latency and failures, then checks every call was answered exactly once.
+ *
+ * Google, Facebook and phone flows run side by side. The number of cycles can be raised with the
+ * <code>stress.cycles</code> system property. No call may be lost or answered twice, and the heap retained by
+ * the cycles must stay below what keeping their calls would take.
+ *
+ * The throughput report is logged under the SignInStressTest tag, shown with -Drobolectric.logging=stdout, and
+ * is part of every assertion message.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class SignInStressTest {
+    private static final String STRESS_TAG = "SignInStressTest";
+    private static final int CYCLES = Integer.getInteger("stress.cycles", 2000);
+    private static final int MAX_LATENCY_MILLIS = 5;
+    private static final double FAILURE_RATE = 0.1;
+    private static final long DRAIN_TIMEOUT_MILLIS = 30 * 1000;
+    private static final long MAX_RETAINED_BYTES_PER_CYCLE = 1024;
+    private static final String[] PHONES = {"+15550000001", "+15550000002", "+15550000003"};
+
+    private final Map<String, AtomicInteger> answers = new ConcurrentHashMap<>();
+    private final List<String> callbackIds = new ArrayList<>();
+    private final Random random = new Random(7);
+
+    private FakeAuthBackends backends;
+    private CapacitorFirebaseAuth plugin;
+    private MessageHandler messageHandler;
+
+    @Before
+    public void setUp() throws Exception {
+        Context context = ApplicationProvider.getApplicationContext();
+        if (FirebaseApp.getApps(context).isEmpty()) {
+            FirebaseApp.initializeApp(context, new FirebaseOptions.Builder()
+                    .setApplicationId("1:1234567890:android:0123456789abcdef")
+                    .setApiKey("fake-api-key")
+                    .setProjectId("fake-project")
+                    .build());
+        }
+        FacebookSdk.setApplicationId("1234567890");
+        FacebookSdk.sdkInitialize(context);
+
+        this.messageHandler = mock(MessageHandler.class, withSettings().stubOnly());
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                PluginCall call = invocation.getArgument(0);
+                answers.get(call.getCallbackId()).incrementAndGet();
+                return null;
+            }
+        }).when(this.messageHandler).sendResponseMessage(any(PluginCall.class), ArgumentMatchers.<PluginResult>any(), ArgumentMatchers.<PluginResult>any());
+
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        Bridge bridge = mock(Bridge.class, withSettings().stubOnly());
+        when(bridge.getActivity()).thenReturn(activity);
+        when(bridge.getContext()).thenReturn(context);
+
+        JSONObject jsPlugin = new JSONObject()
+                .put("providers", new JSONArray()
+                        .put(GoogleAuthProvider.PROVIDER_ID)
+                        .put(FacebookAuthProvider.PROVIDER_ID)
+                        .put(PhoneAuthProvider.PROVIDER_ID))
+                .put("nativeAuth", true)
+                .put("silentSignInTimeoutMs", 20);
+        JSONObject jsConfig = new JSONObject()
+                .put("plugins", new JSONObject().put("CapacitorFirebaseAuth", jsPlugin));
+
+        this.backends = new FakeAuthBackends(MAX_LATENCY_MILLIS, FAILURE_RATE);
+        this.plugin = new CapacitorFirebaseAuth();
+        this.plugin.setBridge(bridge);
+        this.plugin.setConfig(new CapConfig(activity.getAssets(), jsConfig));
+        this.plugin.setBackends(this.backends);
+        this.plugin.load();
+    }
+
+    @After
+    public void tearDown() {
+        this.backends.shutdown();
+    }
+
+    @Test
+    public void everyCallIsAnsweredExactlyOnce() throws Exception {
+        long usedHeapBefore = usedHeap();
+        long startedAt = System.nanoTime();
+
+        for (int cycle = 0; cycle < CYCLES; cycle++) {
+            int operation = this.random.nextInt(100);
+
+            if (operation < 25) {
+                this.plugin.signIn(this.call("signIn", new JSObject().put("providerId", GoogleAuthProvider.PROVIDER_ID)));
+            } else if (operation < 45) {
+                int outcome = this.random.nextInt(10);
+                this.plugin.handleOnActivityResult(GoogleProviderHandler.RC_GOOGLE_SIGN_IN, Activity.RESULT_OK,
+                        FakeAuthBackends.googleResult(outcome < 7 ? FakeAuthBackends.RESULT_SUCCESS
+                                : outcome < 9 ? FakeAuthBackends.RESULT_CANCEL : FakeAuthBackends.RESULT_FAILURE));
+            } else if (operation < 53) {
+                this.plugin.signIn(this.call("signIn", new JSObject().put("providerId", FacebookAuthProvider.PROVIDER_ID)));
+            } else if (operation < 60) {
+                // without data the Facebook SDK reports a canceled result as cancel, and any other as failure
+                this.plugin.handleOnActivityResult(FacebookProviderHandler.RC_FACEBOOK_LOGIN,
+                        this.random.nextInt(10) < 7 ? Activity.RESULT_CANCELED : Activity.RESULT_OK, null);
+            } else if (operation < 67) {
+                this.plugin.signIn(this.call("signIn", this.phoneData(null)));
+            } else if (operation < 75) {
+                this.plugin.signIn(this.call("signIn", this.phoneData(FakeAuthBackends.SMS_CODE)));
+            } else if (operation < 90) {
+                this.plugin.signOut(this.call("signOut", new JSObject()));
+            } else if (operation < 95) {
+                this.plugin.cancelSignIn(this.call("cancelSignIn", new JSObject()));
+            } else {
+                Thread.sleep(1);
+            }
+
+            ShadowLooper.idleMainLooper(this.random.nextInt(10), TimeUnit.MILLISECONDS);
+        }
+
+        // let the flows in flight complete, then abort the ones waiting for an activity result
+        this.drain();
+        this.plugin.cancelSignIn(this.call("cancelSignIn", new JSObject()));
+        this.drain();
+
+        long elapsedNanos = System.nanoTime() - startedAt;
+        long retainedHeap = usedHeap() - usedHeapBefore;
+
+        int lost = 0;
+        int doubleAnswered = 0;
+        for (String callbackId : this.callbackIds) {
+            int count = this.answers.get(callbackId).get();
+            if (count == 0) {
+                lost++;
+            } else if (count > 1) {
+                doubleAnswered++;
+            }
+        }
+
+        String report = String.format(Locale.US, "%d calls in %d cycles, %.0f calls/s, %d lost, %d answered twice, %d bytes of heap retained.",
+                this.callbackIds.size(), CYCLES, this.callbackIds.size() * 1e9 / elapsedNanos, lost, doubleAnswered, retainedHeap);
+        Log.i(STRESS_TAG, report);
+
+        assertEquals("Lost calls: " + report, 0, lost);
+        assertEquals("Calls answered more than once: " + report, 0, doubleAnswered);
+        assertTrue("Heap retained by the cycles: " + report, retainedHeap < CYCLES * MAX_RETAINED_BYTES_PER_CYCLE);
+    }
+
+    /**
+     * @return The phone sign in data, requesting the verification, or signing in if there is a code.
+     */
+    private JSObject phoneData(String verificationCode) {
+        JSObject data = new JSObject().put("phone", PHONES[this.random.nextInt(PHONES.length)]);
+        if (verificationCode != null) {
+            data.put("verificationCode", verificationCode);
+        }
+
+        return new JSObject().put("providerId", PhoneAuthProvider.PROVIDER_ID).put("data", data);
+    }
+
+    private PluginCall call(String methodName, JSObject data) {
+        String callbackId = String.valueOf(this.callbackIds.size());
+        this.callbackIds.add(callbackId);
+        this.answers.put(callbackId, new AtomicInteger(0));
+
+        return new PluginCall(this.messageHandler, "CapacitorFirebaseAuth", callbackId, methodName, data);
+    }
+
+    /**
+     * Wait for the backend tasks, the pipeline and the main looper to be idle, a few rounds in a row
+     * since each of them may start work on the others.
+     */
+    private void drain() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MILLIS;
+        int idleRounds = 0;
+
+        while (idleRounds < 3 && System.currentTimeMillis() < deadline) {
+            ShadowLooper.idleMainLooper(100, TimeUnit.MILLISECONDS);
+
+            final CountDownLatch pipelineIdle = new CountDownLatch(1);
+            this.plugin.getExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    pipelineIdle.countDown();
+                }
+            });
+            pipelineIdle.await(1, TimeUnit.SECONDS);
+            Thread.sleep(MAX_LATENCY_MILLIS);
+
+            idleRounds = this.backends.getPendingTasks() == 0 ? idleRounds + 1 : 0;
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int index = 0; index < 3; index++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
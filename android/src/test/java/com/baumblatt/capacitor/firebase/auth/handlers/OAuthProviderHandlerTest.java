@@ -0,0 +1,86 @@
+package com.baumblatt.capacitor.firebase.auth.handlers;
+
+import com.baumblatt.capacitor.firebase.auth.CapacitorFirebaseAuth;
+import com.getcapacitor.PluginCall;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.auth.UserInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The generic OAuth providers find the user signed in by its provider data, the user provider id being firebase.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class OAuthProviderHandlerTest {
+    private CapacitorFirebaseAuth plugin;
+    private FirebaseUser user;
+    private OAuthProviderHandler handler;
+
+    @Before
+    public void setUp() {
+        FirebaseAuth firebaseAuth = mock(FirebaseAuth.class);
+        this.user = mock(FirebaseUser.class);
+        when(this.user.getProviderId()).thenReturn("firebase");
+        when(firebaseAuth.getCurrentUser()).thenReturn(this.user);
+
+        this.plugin = mock(CapacitorFirebaseAuth.class);
+        when(this.plugin.getFirebaseAuth()).thenReturn(firebaseAuth);
+        when(this.plugin.getFirebaseAuth(any(PluginCall.class))).thenReturn(firebaseAuth);
+
+        // not initialized, the provider build needs a Firebase app
+        this.handler = new OAuthProviderHandler("github.com");
+        this.handler.plugin = this.plugin;
+    }
+
+    @Test
+    public void signedInProviderIsAuthenticated() {
+        this.linkProviders("password", "github.com");
+
+        assertTrue(this.handler.isAuthenticated());
+    }
+
+    @Test
+    public void otherProviderIsNotAuthenticated() {
+        this.linkProviders("firebase", "microsoft.com");
+
+        assertFalse(this.handler.isAuthenticated());
+    }
+
+    @Test
+    public void silentSignInKeepsTheSignedInProvider() {
+        this.linkProviders("github.com");
+        SilentSignInCallback callback = mock(SilentSignInCallback.class);
+
+        this.handler.silentSignIn(mock(PluginCall.class), callback);
+
+        verify(callback).onSuccess(null);
+        verify(this.plugin, never()).recoverPendingAuthResult(any(FirebaseAuth.class));
+    }
+
+    private void linkProviders(String... providerIds) {
+        UserInfo[] userInfos = new UserInfo[providerIds.length];
+        for (int index = 0; index < providerIds.length; index++) {
+            userInfos[index] = mock(UserInfo.class);
+            when(userInfos[index].getProviderId()).thenReturn(providerIds[index]);
+        }
+
+        doReturn(Arrays.asList(userInfos)).when(this.user).getProviderData();
+    }
+}
@@ -6,8 +6,10 @@ import * as firebase from 'firebase/app';
 import {
     AppleSignInResult,
     CapacitorFirebaseAuthPlugin,
+    cfaOAuthProviders,
     FacebookSignInResult,
     GoogleSignInResult,
+    OAuthSignInResult,
     PhoneSignInResult,
     SignInOptions, SignInResult,
     TwitterSignInResult
@@ -36,7 +38,9 @@ export const cfaSignIn = (providerId: string, data?: SignInOptions): Observable<
 		case phoneProvider:
 			return cfaSignInPhone(data.phone, data.verificationCode);
 		default:
-			return throwError(new Error(`The '${providerId}' provider was not supported`));
+			return cfaOAuthProviders.indexOf(providerId) >= 0
+				? cfaSignInOAuth(providerId)
+				: throwError(new Error(`The '${providerId}' provider was not supported`));
 	}
 };
 
@@ -155,6 +159,33 @@ export const cfaSignInApple = (): Observable<{userCredential: firebase.auth.User
     });
 }
 
+/**
+ * Call the generic OAuth sign in method (e.g. Microsoft, GitHub or Yahoo) on native and sign in on web layer with
+ * retrieved credentials.
+ * @param providerId The provider identification.
+ */
+export const cfaSignInOAuth = (providerId: string): Observable<{userCredential: firebase.auth.UserCredential, result: OAuthSignInResult}> => {
+	return new Observable(observer => {
+		// native sign in
+		plugin.signIn({providerId}).then((result: OAuthSignInResult) => {
+			// create the credentials
+			const credential = new firebase.auth.OAuthProvider(providerId).credential({
+				idToken: result.idToken || undefined,
+				accessToken: result.accessToken || undefined
+			});
+
+			// web sign in
+			firebase.app().auth().signInWithCredential(credential)
+				.then((userCredential: firebase.auth.UserCredential) => {
+					observer.next({userCredential, result});
+					observer.complete();
+				})
+				.catch((reject: any) => observer.error(reject));
+
+		}).catch(reject => observer.error(reject));
+	});
+};
+
 /**
  * Call the Phone verification sign in, handling send and retrieve to code on native, but only sign in on web with retrieved credentials.
  * This implementation is just to keep everything in compliance if others providers in this alternative calls.
@@ -189,4 +220,4 @@ export const cfaSignInPhone = (phone: string, verificationCode?: string) : Obser
 };
 
 // re-exporting the unchanged functions from facades for simple imports.
-export {cfaSignInPhoneOnCodeReceived, cfaSignInPhoneOnCodeSent, cfaSignOut} from '../facades'
+export {cfaAuthStateChanged, cfaLink, cfaSignInNative, cfaSignInPhoneOnCodeReceived, cfaSignInPhoneOnCodeSent, cfaSignInPhoneOnRateLimited, cfaSignOut} from '../facades'
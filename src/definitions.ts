@@ -8,8 +8,35 @@ declare module "@capacitor/core" {
 }
 
 export interface CapacitorFirebaseAuthPlugin {
-  signIn(options: {providerId: string, data?: SignInOptions}): Promise<SignInResult>;
-  signOut(options: {}): Promise<void>;
+  signIn(options: {providerId: string, data?: SignInOptions, appName?: string, tenantId?: string, fields?: SignInResultField[]}): Promise<SignInResult>;
+  signOut(options: {appName?: string, tenantId?: string}): Promise<SignOutResult>;
+  cancelSignIn(options: {providerId?: string}): Promise<void>;
+  link(options: {providerIds: string[], appName?: string, tenantId?: string}): Promise<LinkResult>;
+  getMetrics(options: {reset?: boolean}): Promise<SignInMetrics>;
+  dumpTraces(options: {clear?: boolean}): Promise<AuthTraces>;
+}
+
+export interface LatencyHistogram {
+  count: number;
+  sum: number;
+  max: number;
+  p50: number;
+  p90: number;
+  p99: number;
+  buckets: number[];
+}
+
+export interface ProviderMetrics {
+  success: number;
+  failure: number;
+  cancel: number;
+  timeout: number;
+  phases: {[phase: string]: LatencyHistogram};
+}
+
+export interface SignInMetrics {
+  bounds: number[];
+  providers: {[providerId: string]: ProviderMetrics};
 }
 
 export class GoogleSignInResult{
@@ -36,13 +63,98 @@ export class AppleSignInResult {
   }
 }
 
+/**
+ * The generic OAuth providers signed in by the native registry out of the box, routed to cfaSignInOAuth by cfaSignIn.
+ * Providers registered by the app are signed in calling cfaSignInOAuth directly.
+ */
+export const cfaOAuthProviders: string[] = ['microsoft.com', 'github.com', 'yahoo.com'];
+
+export class OAuthSignInResult {
+  constructor(public providerId: string, public idToken: string, public accessToken: string) {
+  }
+}
+
 export class PhoneSignInResult {
   providerId = firebase.auth.PhoneAuthProvider.PROVIDER_ID;
   constructor(public verificationId: string, public verificationCode: string) {
   }
 }
 
-export type SignInResult = GoogleSignInResult | TwitterSignInResult | FacebookSignInResult | PhoneSignInResult;
+export type SignInResult = GoogleSignInResult | TwitterSignInResult | FacebookSignInResult | PhoneSignInResult | OAuthSignInResult;
+
+/**
+ * The fields of the sign in result (Android only), the result only carries the requested ones. <code>signedIn</code>
+ * is only added when requested, for status probes. A mask of only <code>signedIn</code> answers from the native
+ * session without starting a sign in, with <code>signedIn</code> false when there is none.
+ */
+export type SignInResultField = 'callbackId' | 'providerId' | 'idToken' | 'accessToken' | 'secret' | 'rawNonce'
+  | 'verificationId' | 'verificationCode' | 'user' | 'signedIn';
+
+export interface AuthTraceEvent {
+  time: number;
+  event: 'signIn' | 'intentLaunch' | 'activityResult' | 'credentialReady' | 'nativeAuthDone' | 'resolve' | 'reject';
+  providerId: string;
+  callId?: string;
+  error?: string;
+}
+
+export interface AuthTraces {
+  events: AuthTraceEvent[];
+}
+
+/**
+ * The Firebase user signed in on the native layer, returned with the sign in result when `nativeOnly` is enabled.
+ */
+export interface NativeUser {
+  uid: string;
+  idToken: string;
+  expirationTime: number;
+  signInProvider?: string;
+  displayName?: string;
+  email?: string;
+  emailVerified: boolean;
+  phoneNumber?: string;
+  photoUrl?: string;
+}
+
+/**
+ * The payload of the <code>cfaAuthStateChanged</code> event.
+ */
+export interface AuthState {
+  signedIn: boolean;
+  uid?: string;
+  idToken?: string;
+  expirationTime?: number;
+  signInProvider?: string;
+}
+
+/**
+ * The status of a provider sign out, <code>timeout</code> when it did not complete within the sign out timeout.
+ */
+export interface ProviderSignOut {
+  status: 'success' | 'failure' | 'timeout';
+  duration: number;
+  error?: string;
+}
+
+export interface SignOutResult {
+  providers: {[providerId: string]: ProviderSignOut};
+}
+
+/**
+ * The outcome of a provider on the <code>link</code> plugin method.
+ */
+export interface LinkOutcome {
+  linked: boolean;
+  alreadyLinked?: boolean;
+  error?: string;
+  duration: number;
+}
+
+export interface LinkResult {
+  uid?: string;
+  providers: {[providerId: string]: LinkOutcome};
+}
 
 export interface PhoneSignInOptions {
   phone: string,
@@ -4,11 +4,17 @@ import 'firebase/auth';
 import {Observable, throwError} from 'rxjs';
 import {
     AppleSignInResult,
+    AuthState,
     CapacitorFirebaseAuthPlugin,
+    cfaOAuthProviders,
     FacebookSignInResult,
     GoogleSignInResult,
+    LinkResult,
+    NativeUser,
+    OAuthSignInResult,
     PhoneSignInResult,
     SignInOptions,
+    SignInResult,
     TwitterSignInResult
 } from './definitions';
 import {CapacitorFirebaseAuth} from './web';
@@ -41,10 +47,36 @@ export const cfaSignIn = (providerId: string, data?: SignInOptions): Observable<
 		case phoneProvider:
 			return cfaSignInPhone(data.phone, data.verificationCode);
 		default:
-			return throwError(new Error(`The '${providerId}' provider was not supported`));
+			return cfaOAuthProviders.indexOf(providerId) >= 0
+				? cfaSignInOAuth(providerId)
+				: throwError(new Error(`The '${providerId}' provider was not supported`));
 	}
 };
 
+/**
+ * Call the sign in method on native layer only, with the <code>nativeOnly</code> config enabled, skipping the sign in
+ * on web layer. The native layer returns the Firebase user and its ID token.
+ * @param providerId The provider identification.
+ * @param data The provider additional information (optional).
+ */
+export const cfaSignInNative = (providerId: string, data?: SignInOptions): Observable<NativeUser> => {
+	return new Observable(observer => {
+		plugin.signIn({providerId, data}).then((result: SignInResult & {user?: NativeUser}) => {
+			// phone verification without code
+			if (!result.user && data && !data.verificationCode) {
+				return observer.complete();
+			}
+
+			if (!result.user) {
+				return observer.error(new Error('The native result has no user, is the nativeOnly config enabled?'));
+			}
+
+			observer.next(result.user);
+			observer.complete();
+		}).catch(reject => observer.error(reject));
+	});
+};
+
 /**
  * Call the Google sign in method on native layer and sign in on web layer with retrieved credentials.
  */
@@ -151,6 +183,33 @@ export const cfaSignInApple = (): Observable<firebase.User> => {
     });
 }
 
+/**
+ * Call the generic OAuth sign in method (e.g. Microsoft, GitHub or Yahoo) on native and sign in on web layer with
+ * retrieved credentials.
+ * @param providerId The provider identification.
+ */
+export const cfaSignInOAuth = (providerId: string): Observable<firebase.User> => {
+	return new Observable(observer => {
+		// native sign in
+		plugin.signIn({providerId}).then((result: OAuthSignInResult) => {
+			// create the credentials
+			const credential = new firebase.auth.OAuthProvider(providerId).credential({
+				idToken: result.idToken || undefined,
+				accessToken: result.accessToken || undefined
+			});
+
+			// web sign in
+			firebase.app().auth().signInWithCredential(credential)
+				.then((userCredential: firebase.auth.UserCredential) => {
+					observer.next(userCredential.user);
+					observer.complete();
+				})
+				.catch((reject: any) => observer.error(reject));
+
+		}).catch(reject => observer.error(reject));
+	});
+};
+
 /**
  * Call the Phone verification sign in, handling send and retrieve to code on native, but only sign in on web with retrieved credentials.
  * @param phone The user phone number.
@@ -209,6 +268,54 @@ export const cfaSignInPhoneOnCodeReceived = () : Observable<{verificationId: str
 	});
 };
 
+/**
+ * Observable of one notification of <code>On Rate Limited</code> event from Phone Verification process, with the
+ * seconds to wait before request a new verification code.
+ */
+export const cfaSignInPhoneOnRateLimited = () : Observable<{phone: string, retryAfter: number}> => {
+	return new Observable<{phone: string, retryAfter: number}>(observer => {
+		// @ts-ignore
+		return plugin.addListener('cfaSignInPhoneOnRateLimited', (event: { phone: string, retryAfter: number }) => {
+			observer.next(event);
+			observer.complete();
+		});
+	});
+};
+
+/**
+ * Observable of the native Firebase auth state (Android only), notified on sign in, sign out and ID token changes.
+ * Bursts of changes are coalesced on native layer, and repeated states are not notified.
+ */
+export const cfaAuthStateChanged = () : Observable<AuthState> => {
+	return new Observable<AuthState>(observer => {
+		// @ts-ignore
+		const handle = plugin.addListener('cfaAuthStateChanged', (event: AuthState) => {
+			observer.next(event);
+		});
+
+		return () => handle.remove();
+	});
+};
+
+/**
+ * Link the identities of the given providers to the current user on native layer (Android only), running the
+ * provider flows back to back, and reload the web layer user to reflect the new providers.
+ * @param providerIds The provider identifications.
+ */
+export const cfaLink = (providerIds: string[]): Observable<LinkResult> => {
+	return new Observable(observer => {
+		plugin.link({providerIds}).then((result: LinkResult) => {
+			const user = firebase.app().auth().currentUser;
+			const reload = user ? user.reload() : Promise.resolve();
+
+			reload.then(() => {
+				observer.next(result);
+				observer.complete();
+			}).catch((reject: any) => observer.error(reject));
+		}).catch(reject => observer.error(reject));
+	});
+};
+
 /**
  * Call Google sign out method on native and web layers.
  */
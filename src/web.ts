@@ -1,7 +1,7 @@
 import {registerWebPlugin, WebPlugin} from '@capacitor/core';
 import * as firebase from 'firebase/app';
 import 'firebase/auth';
-import {CapacitorFirebaseAuthPlugin, SignInResult} from './definitions';
+import {AuthTraces, CapacitorFirebaseAuthPlugin, LinkResult, SignInMetrics, SignInResult, SignOutResult} from './definitions';
 import {facebookSignInWeb} from './providers/facebook.provider';
 import {googleSignInWeb} from './providers/google.provider';
 import {phoneSignInWeb} from './providers/phone.provider';
@@ -34,9 +34,30 @@ export class CapacitorFirebaseAuthWeb extends WebPlugin implements CapacitorFire
 	  return Promise.reject(`The '${options.providerId}' provider was not supported`);
   }
 
-  async signOut(options: {}): Promise<void> {
+  async signOut(options: {appName?: string, tenantId?: string}): Promise<SignOutResult> {
       console.log(options);
+      const startedAt = Date.now();
       return firebase.auth().signOut()
+          .then(() => ({providers: {firebase: {status: 'success', duration: Date.now() - startedAt}}} as SignOutResult));
+  }
+
+  async cancelSignIn(options: {providerId?: string}): Promise<void> {
+      console.log(options);
+  }
+
+  async link(options: {providerIds: string[]}): Promise<LinkResult> {
+      console.log(options);
+      return Promise.reject('The link is not supported on web');
+  }
+
+  async getMetrics(options: {reset?: boolean}): Promise<SignInMetrics> {
+      console.log(options);
+      return {bounds: [], providers: {}};
+  }
+
+  async dumpTraces(options: {clear?: boolean}): Promise<AuthTraces> {
+      console.log(options);
+      return {events: []};
   }
 }
 